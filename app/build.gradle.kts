@@ -31,6 +31,11 @@ android {
         targetCompatibility = JavaVersion.VERSION_11
     }
 
+    testOptions {
+        // Local unit tests run against the stub android.jar; Log / SystemClock return defaults
+        unitTests.isReturnDefaultValues = true
+    }
+
     buildFeatures {
         viewBinding = true
         buildConfig = true
@@ -62,6 +67,9 @@ dependencies {
     implementation("com.amazonaws:aws-android-sdk-rekognition:2.54.0")
     // HTTP client for OpenAI API
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
+    // Glide for playlist cover artwork
+    implementation("com.github.bumptech.glide:glide:4.16.0")
+    annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
 }
 
 secrets {
@@ -0,0 +1,186 @@
+package com.comp90018.contexttunes.data.api;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Latency / allocation comparison of the streaming {@link SpotifyAlbumParser} against the
+ * previous org.json tree parse, on search responses shaped like real /v1/search?type=album pages
+ * (20 items, ~185 available_markets each, 3 images, a few null / invalid items).
+ *
+ * Results are logged under the "ParserBenchmark" tag; the test only asserts that both paths
+ * produce the same albums.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SpotifyAlbumParserBenchmark {
+
+    private static final String TAG = "ParserBenchmark";
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 200;
+    private static final int WANTED = 5; // SpotifyAPI.DEFAULT_LIMIT
+
+    @Test
+    public void streamingMatchesTreeParse() throws Exception {
+        String body = recordedPage(20);
+        List<SpotifyPlaylist> tree = treeParse(body);
+        List<SpotifyPlaylist> streamed = SpotifyAlbumParser.parse(new StringReader(body), Integer.MAX_VALUE).albums;
+
+        assertEquals(tree.size(), streamed.size());
+        for (int i = 0; i < tree.size(); i++) {
+            SpotifyPlaylist a = tree.get(i), b = streamed.get(i);
+            assertEquals(a.id, b.id);
+            assertEquals(a.name, b.name);
+            assertEquals(a.description, b.description);
+            assertEquals(a.imageUrl, b.imageUrl);
+            assertEquals(a.ownerName, b.ownerName);
+            assertEquals(a.totalTracks, b.totalTracks);
+            assertEquals(a.externalUrl, b.externalUrl);
+        }
+
+        List<SpotifyPlaylist> firstFew = SpotifyAlbumParser.parse(new StringReader(body), WANTED).albums;
+        assertEquals(WANTED, firstFew.size());
+        assertEquals(tree.get(WANTED - 1).id, firstFew.get(WANTED - 1).id);
+    }
+
+    @Test
+    public void benchmarkTreeVsStreaming() throws Exception {
+        String body = recordedPage(20);
+
+        for (int i = 0; i < WARMUP; i++) {
+            treeParse(body);
+            SpotifyAlbumParser.parse(new StringReader(body), WANTED);
+        }
+
+        long[] treeNs = new long[ITERATIONS];
+        long treeAlloc = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            treeParse(body);
+            treeNs[i] = System.nanoTime() - t0;
+        }
+        treeAlloc = allocatedBytes() - treeAlloc;
+
+        long[] fullNs = new long[ITERATIONS];
+        long fullAlloc = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            SpotifyAlbumParser.parse(new StringReader(body), Integer.MAX_VALUE);
+            fullNs[i] = System.nanoTime() - t0;
+        }
+        fullAlloc = allocatedBytes() - fullAlloc;
+
+        long[] earlyNs = new long[ITERATIONS];
+        long earlyAlloc = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long t0 = System.nanoTime();
+            SpotifyAlbumParser.parse(new StringReader(body), WANTED);
+            earlyNs[i] = System.nanoTime() - t0;
+        }
+        earlyAlloc = allocatedBytes() - earlyAlloc;
+
+        Log.i(TAG, "payload " + body.length() + " chars, " + ITERATIONS + " iterations");
+        Log.i(TAG, report("org.json tree", treeNs, treeAlloc));
+        Log.i(TAG, report("streaming (all items)", fullNs, fullAlloc));
+        Log.i(TAG, report("streaming (first " + WANTED + ")", earlyNs, earlyAlloc));
+    }
+
+    // ---------------- Helpers ----------------
+
+    /** Previous SpotifyAPI.performSearch parsing, kept here as the baseline. */
+    private static List<SpotifyPlaylist> treeParse(String body) throws Exception {
+        List<SpotifyPlaylist> playlists = new ArrayList<>();
+        JSONArray items = new JSONObject(body).getJSONObject("albums").getJSONArray("items");
+        for (int i = 0; i < items.length(); i++) {
+            if (items.isNull(i)) continue;
+            JSONObject item = items.getJSONObject(i);
+            String id = item.optString("id", "");
+            if (id.isEmpty()) continue;
+            String imageUrl = "";
+            JSONArray images = item.optJSONArray("images");
+            if (images != null && images.length() > 0) imageUrl = images.getJSONObject(0).optString("url", "");
+            String ownerName = "Unknown";
+            JSONArray artists = item.optJSONArray("artists");
+            if (artists != null && artists.length() > 0) ownerName = artists.getJSONObject(0).optString("name", "Unknown");
+            String externalUrl = "";
+            JSONObject urls = item.optJSONObject("external_urls");
+            if (urls != null) externalUrl = urls.optString("spotify", "");
+            if (externalUrl.isEmpty()) continue;
+            playlists.add(new SpotifyPlaylist(id, item.optString("name", "Unknown"),
+                    item.optString("album_type", "album"), imageUrl, ownerName,
+                    item.optInt("total_tracks", 0), externalUrl));
+        }
+        return playlists;
+    }
+
+    /** A search page with the same shape and field mix as a recorded Spotify album search. */
+    private static String recordedPage(int items) throws Exception {
+        JSONArray markets = new JSONArray();
+        for (int m = 0; m < 185; m++) markets.put("" + (char) ('A' + m / 26 % 26) + (char) ('A' + m % 26));
+
+        JSONArray arr = new JSONArray();
+        for (int i = 0; i < items; i++) {
+            if (i == 3 || i == 11) { arr.put(JSONObject.NULL); continue; }
+            JSONObject album = new JSONObject();
+            album.put("album_type", i % 4 == 0 ? "single" : "album");
+            album.put("total_tracks", 8 + i);
+            album.put("available_markets", markets);
+            JSONObject ext = new JSONObject();
+            if (i != 7) ext.put("spotify", "https://open.spotify.com/album/id" + i);
+            album.put("external_urls", ext);
+            album.put("href", "https://api.spotify.com/v1/albums/id" + i);
+            album.put("id", "id" + i);
+            JSONArray images = new JSONArray();
+            for (int size : Arrays.asList(640, 300, 64)) {
+                images.put(new JSONObject().put("height", size).put("width", size)
+                        .put("url", "https://i.scdn.co/image/ab67616d0000" + size + "id" + i));
+            }
+            album.put("images", images);
+            album.put("name", "Album " + i);
+            album.put("release_date", "2021-0" + (1 + i % 9) + "-15");
+            album.put("release_date_precision", "day");
+            album.put("type", "album");
+            album.put("uri", "spotify:album:id" + i);
+            JSONArray artists = new JSONArray();
+            artists.put(new JSONObject().put("name", "Artist " + i).put("id", "a" + i)
+                    .put("external_urls", new JSONObject().put("spotify", "https://open.spotify.com/artist/a" + i))
+                    .put("type", "artist").put("uri", "spotify:artist:a" + i));
+            album.put("artists", artists);
+            arr.put(album);
+        }
+        JSONObject albums = new JSONObject()
+                .put("href", "https://api.spotify.com/v1/search?query=chill&type=album&offset=0&limit=20")
+                .put("items", arr).put("limit", 20).put("next", JSONObject.NULL)
+                .put("offset", 0).put("previous", JSONObject.NULL).put("total", 1000);
+        return new JSONObject().put("albums", albums).toString();
+    }
+
+    private static long allocatedBytes() {
+        String v = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return v == null ? 0 : Long.parseLong(v);
+    }
+
+    private static String report(String label, long[] ns, long allocBytes) {
+        long[] sorted = ns.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "%-24s p50=%.1f us p90=%.1f us alloc/op=%d B", label,
+                sorted[sorted.length / 2] / 1000.0, sorted[(int) (sorted.length * 0.9)] / 1000.0,
+                allocBytes / ns.length);
+    }
+}
@@ -1,6 +1,8 @@
 package com.comp90018.contexttunes;
 
 import android.app.Application;
+import com.comp90018.contexttunes.data.api.SpotifyTokenProvider;
+import com.comp90018.contexttunes.services.CacheWarmingJobService;
 import com.google.android.libraries.places.api.Places;
 
 public class ContextTunesApp extends Application {
@@ -8,5 +10,9 @@ public class ContextTunesApp extends Application {
         super.onCreate();
         // Initialize the Places SDK ONCE for the whole app
         Places.initializeWithNewPlacesApiEnabled(getApplicationContext(), BuildConfig.PLACES_API_KEY);
+        // Spotify token via client credentials, refreshed in the background before it expires
+        SpotifyTokenProvider.getInstance(this).warmUp();
+        // Pre-compute AI queries + Spotify results while charging on Wi-Fi
+        CacheWarmingJobService.schedule(this);
     }
 }
\ No newline at end of file
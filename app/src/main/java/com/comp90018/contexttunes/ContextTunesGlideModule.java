@@ -0,0 +1,35 @@
+package com.comp90018.contexttunes;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+/**
+ * App-wide Glide configuration for playlist covers:
+ * - Disk cache in cacheDir/artwork, bounded to DISK_CACHE_BYTES (LRU eviction by Glide)
+ * - RGB_565 decoding: covers are opaque, half the bitmap memory of ARGB_8888
+ */
+@GlideModule
+public final class ContextTunesGlideModule extends AppGlideModule {
+
+    private static final String DISK_CACHE_DIR = "artwork";
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, DISK_CACHE_BYTES));
+        builder.setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false; // no v3 manifest modules
+    }
+}
@@ -4,6 +4,8 @@ import android.content.Context;
 import android.location.Location;
 import android.util.Log;
 
+import com.comp90018.contexttunes.utils.NetworkTelemetry;
+
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.libraries.places.api.Places;
 import com.google.android.libraries.places.api.model.CircularBounds;
@@ -80,13 +82,22 @@ public class GooglePlacesAPI {
                 .setMaxResultCount(10)
                 .build();
 
+        // The SDK hides the HTTP layer, so only total time and outcome are measurable here
+        final NetworkTelemetry.CallRecord telemetry = new NetworkTelemetry.CallRecord();
+        final long startNanos = System.nanoTime();
+
         placesClient.searchNearby(request)
                 .addOnSuccessListener(response -> {
+                    telemetry.totalMs = NetworkTelemetry.sinceMs(startNanos);
+                    telemetry.status = 200;
+                    NetworkTelemetry.record(NetworkTelemetry.PLACES_NEARBY, telemetry);
                     List<Place> places = response.getPlaces();
                     Log.d("GooglePlacesAPI", "Found " + places.size() + " places");
                     callback.onPlacesFound(places);
                 })
                 .addOnFailureListener(exception -> {
+                    telemetry.totalMs = NetworkTelemetry.sinceMs(startNanos);
+                    NetworkTelemetry.record(NetworkTelemetry.PLACES_NEARBY, telemetry);
                     Log.e("GooglePlacesAPI", "Nearby search failed: ", exception);
                     callback.onError(exception);
                 });
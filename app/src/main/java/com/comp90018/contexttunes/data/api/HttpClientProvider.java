@@ -0,0 +1,61 @@
+package com.comp90018.contexttunes.data.api;
+
+import androidx.annotation.NonNull;
+
+import com.comp90018.contexttunes.utils.NetworkTelemetry;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * One process-wide HTTP stack for Spotify, OpenWeather and OpenAI.
+ * - Single connection pool → keep-alive connections and TLS sessions are reused across calls
+ * - HTTP/2 negotiated via ALPN where the server supports it (one multiplexed connection per host)
+ * - Transparent gzip (OkHttp adds Accept-Encoding and decompresses when we don't set it ourselves)
+ * - Every call is measured by {@link NetworkTelemetry}, including whether its connection was reused
+ *
+ * Clients that need different timeouts derive from {@link #shared()} with newBuilder(), which
+ * keeps the pool and dispatcher shared:
+ *   OkHttpClient spotify = HttpClientProvider.shared().newBuilder().readTimeout(10, SECONDS).build();
+ */
+public final class HttpClientProvider {
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile OkHttpClient INSTANCE;
+
+    private HttpClientProvider() {}
+
+    @NonNull
+    public static OkHttpClient shared() {
+        if (INSTANCE == null) {
+            synchronized (HttpClientProvider.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                            .connectTimeout(10, TimeUnit.SECONDS)
+                            .readTimeout(10, TimeUnit.SECONDS)
+                            .retryOnConnectionFailure(true)
+                            .eventListenerFactory(NetworkTelemetry.eventListenerFactory())
+                            .build();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Idle + active connections currently held by the shared pool. */
+    public static int getConnectionCount() {
+        return shared().connectionPool().connectionCount();
+    }
+
+    public static int getIdleConnectionCount() {
+        return shared().connectionPool().idleConnectionCount();
+    }
+}
@@ -2,52 +2,291 @@ package com.comp90018.contexttunes.data.api;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.text.TextUtils;
 import android.util.Log;
 
-import com.comp90018.contexttunes.domain.SpotifyPlaylist;
-
-import org.json.JSONArray;
-import org.json.JSONObject;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
+import com.comp90018.contexttunes.data.api.SpotifyRequestScheduler.Priority;
+import com.comp90018.contexttunes.domain.SeenAlbumsFilter;
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+import com.comp90018.contexttunes.domain.TempoIndex;
+import com.comp90018.contexttunes.utils.NetworkTelemetry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 public class SpotifyAPI {
 
     private static final String BASE_URL = "https://api.spotify.com/v1/search";
+    private static final String ALBUMS_URL = "https://api.spotify.com/v1/albums";
+    private static final String AUDIO_FEATURES_URL = "https://api.spotify.com/v1/audio-features";
+    public static final int DEFAULT_LIMIT = 5; // results shown per recommendation
     private static final int MAX_OFFSET_ATTEMPTS = 5; // Maximum pagination attempts
     private static final int BATCH_SIZE = 20; // Fetch more items per request to reduce API calls
+    private static final int PARALLEL_PAGES = 3; // Pages requested at once after a short first page (parallel mode)
+    private static final String SEARCH_TYPE = "album";
+    private static final String MARKET = "AU";
+    private static final int MAX_RATE_LIMIT_RETRIES = 2;
+    private static final int MAX_FANOUT_QUERIES = 3; // concurrent queries in searchMulti
+    private static final int RRF_K = 60;             // reciprocal-rank-fusion damping constant
+    private static final int ALBUMS_BATCH = 20;          // max ids per /v1/albums request
+    private static final int AUDIO_FEATURES_BATCH = 100; // max ids per /v1/audio-features request
+    private static final int TRACKS_PER_ALBUM = 10;      // tracks sampled for an album's tempo
+    private static final int SEEN_FILTER_SLACK = DEFAULT_LIMIT; // extra albums parsed per page while filtering
+
+    // Stale-while-revalidate refreshes, shared by all instances and deduplicated per cache key
+    private static final ExecutorService REVALIDATOR = Executors.newSingleThreadExecutor();
+    private static final Set<String> REVALIDATING = ConcurrentHashMap.newKeySet();
+
+    private static final long PREFETCH_TTL_MS = 10 * 60 * 1000L; // prefetched windows older than this are refetched
 
     private String accessToken;
+    @Nullable private final SpotifyTokenProvider tokenProvider; // null → static accessToken only
     private ExecutorService executorService;
+    private ExecutorService pageExecutor; // bounded pool for parallel page fetches
+    private ExecutorService fanOutExecutor; // bounded pool for searchMulti queries
+    private final OkHttpClient httpClient;
+    @Nullable private final SpotifyResponseCache responseCache; // null → always hit the network
+    private final SpotifyRequestScheduler scheduler = SpotifyRequestScheduler.getInstance();
     private Handler mainHandler;
+    private volatile boolean parallelPagination = true;
+
+    // "More of the same": per (query, limit), where the next window starts and its prefetch
+    private ExecutorService prefetchExecutor;
+    private volatile boolean prefetchEnabled = true;
+    private final Map<String, Integer> nextOffsets = new ConcurrentHashMap<>();
+    private final Map<String, Prefetch> prefetches = new ConcurrentHashMap<>();
+    private final AtomicLong prefetchHits = new AtomicLong();
+    private final AtomicLong prefetchMisses = new AtomicLong();
+
+    // Recently shown albums to skip while collecting results
+    @Nullable private volatile SeenAlbumsFilter seenFilter;
+    private final AtomicLong seenSkipped = new AtomicLong();
+    private final AtomicLong seenFilterExtraPages = new AtomicLong();
+
+    // Set once audio-features answers 403/404 (restricted for newer apps); stops tempo indexing
+    private static volatile boolean audioFeaturesUnavailable = false;
+
+    // Pagination stats (parallel mode)
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong pagesWasted = new AtomicLong();
 
+    /** Without response caching; every search goes to the network. */
     public SpotifyAPI(String accessToken) {
+        this(accessToken, null);
+    }
+
+    /** @param context enables the shared memory + disk response cache when non-null */
+    public SpotifyAPI(String accessToken, @Nullable android.content.Context context) {
+        this(accessToken, null, context);
+    }
+
+    /** Tokens from the client-credentials provider (refreshed in the background), with response caching. */
+    public SpotifyAPI(@NonNull android.content.Context context) {
+        this(null, SpotifyTokenProvider.getInstance(context), context);
+    }
+
+    private SpotifyAPI(@Nullable String accessToken, @Nullable SpotifyTokenProvider tokenProvider,
+                       @Nullable android.content.Context context) {
         this.accessToken = accessToken;
+        this.tokenProvider = tokenProvider;
+        this.responseCache = context == null ? null : SpotifyResponseCache.getInstance(context);
         this.executorService = Executors.newSingleThreadExecutor();
+        this.pageExecutor = Executors.newFixedThreadPool(PARALLEL_PAGES);
+        this.prefetchExecutor = Executors.newSingleThreadExecutor();
+        this.fanOutExecutor = Executors.newFixedThreadPool(MAX_FANOUT_QUERIES);
+        this.httpClient = HttpClientProvider.shared().newBuilder()
+                .connectTimeout(8, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .build();
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
 
+    /**
+     * Parallel: when the first page comes back short, the next pages are fetched concurrently.
+     * Sequential: one page at a time. Both send a single request when the first page fills the limit.
+     */
+    public void setParallelPagination(boolean enabled) { this.parallelPagination = enabled; }
+
+    public boolean isParallelPagination() { return parallelPagination; }
+
+    /** Pages actually fetched from the network in parallel mode. */
+    public long getPagesFetched() { return pagesFetched.get(); }
+
+    /** Pages fetched in parallel mode whose items were never needed. */
+    public long getPagesWasted() { return pagesWasted.get(); }
+
+    /** After each successful search, fetch the next window in the background for {@link #searchMore}. */
+    public void setPrefetchEnabled(boolean enabled) {
+        this.prefetchEnabled = enabled;
+        if (!enabled) prefetches.clear();
+    }
+
+    public boolean isPrefetchEnabled() { return prefetchEnabled; }
+
+    /** searchMore calls answered from a prefetched (or in-flight) window. */
+    public long getPrefetchHitCount() { return prefetchHits.get(); }
+
+    /** searchMore calls that had to go to the network. */
+    public long getPrefetchMissCount() { return prefetchMisses.get(); }
+
+    /** Skip albums in this filter while collecting results (backfilled only if pages run out); null disables. */
+    public void setSeenFilter(@Nullable SeenAlbumsFilter filter) { this.seenFilter = filter; }
+
+    /** Recently shown albums skipped by the seen filter. */
+    public long getSeenSkippedCount() { return seenSkipped.get(); }
+
+    /** Pages fetched only because seen albums were skipped. */
+    public long getSeenFilterExtraPages() { return seenFilterExtraPages.get(); }
+
+    /** One window of results and the offset the following window starts at. */
+    private static final class Window {
+        final List<SpotifyPlaylist> items;
+        final int nextOffset;
+
+        Window(List<SpotifyPlaylist> items, int nextOffset) {
+            this.items = items;
+            this.nextOffset = nextOffset;
+        }
+    }
+
+    /**
+     * Accumulates one search's results. With a seen filter, recently shown albums are set aside
+     * (and only used to backfill when the pages run out), and the pages this costs on top of what
+     * the unfiltered search would have needed are counted.
+     */
+    private final class Collector {
+        private final int limit;
+        private int nextOffset;              // just past the last raw item looked at
+        private final SeenAlbumsFilter filter = seenFilter; // fixed for the whole search
+        private final List<SpotifyPlaylist> results = new ArrayList<>();
+        private final List<SpotifyPlaylist> seen = new ArrayList<>();
+        private int rawCount = 0;            // valid items before filtering
+        private int pages = 0;
+        private int pagesWithoutFilter = -1; // pages that would have filled 'limit' unfiltered
+
+        Collector(int limit, int startOffset) {
+            this.limit = limit;
+            this.nextOffset = startOffset;
+        }
+
+        boolean isFull() { return results.size() >= limit; }
+
+        int size() { return results.size(); }
+
+        int pageCount() { return pages; }
+
+        /** Where the next window starts: items parsed but not used here are not skipped. */
+        int nextOffset() { return nextOffset; }
+
+        /**
+         * maxValid for the next page. While filtering, a few extra items are read in case some
+         * were shown already; if even that leaves us short, the caller's loop fetches another page.
+         */
+        int wanted() {
+            int missing = limit - results.size();
+            return filter != null ? missing + SEEN_FILTER_SLACK : missing;
+        }
+
+        void addPage(SpotifyAlbumParser.Result page, int pageOffset) {
+            pages++;
+            for (int i = 0; i < page.albums.size(); i++) {
+                if (isFull()) break;
+                SpotifyPlaylist playlist = page.albums.get(i);
+                nextOffset = pageOffset + page.positions[i] + 1;
+                rawCount++;
+                if (filter != null && playlist.id != null && filter.mightContain(playlist.id)) {
+                    seen.add(playlist);
+                } else {
+                    results.add(playlist);
+                }
+            }
+            if (pagesWithoutFilter < 0 && rawCount >= limit) pagesWithoutFilter = pages;
+        }
+
+        List<SpotifyPlaylist> finish() {
+            if (filter == null) return results;
+            seenSkipped.addAndGet(seen.size());
+            int extra = pages - (pagesWithoutFilter < 0 ? pages : pagesWithoutFilter);
+            if (extra > 0) seenFilterExtraPages.addAndGet(extra);
+            if (!seen.isEmpty()) {
+                Log.d("SpotifyAPI", "Skipped " + seen.size() + " recently shown album(s), " + extra + " extra page(s)");
+            }
+            for (SpotifyPlaylist playlist : seen) { // better a repeat than a short list
+                if (isFull()) break;
+                results.add(playlist);
+            }
+            return results;
+        }
+    }
+
+    /** Background fetch of the window starting at startOffset. */
+    private static final class Prefetch {
+        final int startOffset;
+        final Future<Window> future;
+        final long startedAt = System.currentTimeMillis();
+
+        Prefetch(int startOffset, Future<Window> future) {
+            this.startOffset = startOffset;
+            this.future = future;
+        }
+    }
+
     // Callback interface for async results
     public interface PlaylistCallback {
         void onSuccess(List<SpotifyPlaylist> playlists);
         void onError(String error);
     }
 
-    // Search for playlists
+    // Search for playlists (user-initiated)
     public void searchPlaylists(String query, int limit, PlaylistCallback callback) {
+        searchPlaylists(query, limit, Priority.USER, callback);
+    }
+
+    /** @param priority background work (prefetch, warming) queues behind USER searches */
+    public void searchPlaylists(String query, int limit, Priority priority, PlaylistCallback callback) {
         executorService.execute(() -> {
             try {
-                Log.d("SpotifyAPI", "Searching albums for query: " + query + ", limit: " + limit);
-                List<SpotifyPlaylist> playlists = performSearchWithExactLimit(query, limit);
+                Log.d("SpotifyAPI", "Searching albums for query: " + query + ", limit: " + limit + " (" + priority + ")");
+                Window window = parallelPagination
+                        ? performSearchParallel(query, limit, priority)
+                        : performSearchWithExactLimit(query, limit, 0, priority);
+                if (priority == Priority.USER) {
+                    rememberNextWindow(query, limit, window.nextOffset);
+                }
+                List<SpotifyPlaylist> playlists = window.items;
                 mainHandler.post(() -> callback.onSuccess(playlists));
             } catch (Exception e) {
                 String errorMsg = e.getMessage();
@@ -58,152 +297,581 @@ public class SpotifyAPI {
     }
 
     /**
-     * Keeps querying the API with pagination until we have exactly 'limit' valid items
-     * or we've exhausted available results.
+     * Searches several candidate queries concurrently (e.g. the candidates of one AI completion)
+     * and returns one list: albums are deduplicated by id and ordered by reciprocal-rank fusion,
+     * score = sum over queries of 1 / (RRF_K + rank). Ties keep the order of the first query, so
+     * queries should be passed best first. Each query fetches 'limit' items with sequential
+     * pagination (usually one page), so the fan-out costs one request per query, not a page burst.
+     *
+     * Failing queries are dropped; the callback only errors when all of them failed.
+     * With a single query this is {@link #searchPlaylists(String, int, PlaylistCallback)}.
      */
-    private List<SpotifyPlaylist> performSearchWithExactLimit(String query, int limit) throws Exception {
-        List<SpotifyPlaylist> results = new ArrayList<>();
-        int offset = 0;
-        int attempts = 0;
+    public void searchMulti(List<String> queries, int limit, PlaylistCallback callback) {
+        List<String> distinct = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String q : queries) {
+            if (q == null || q.trim().isEmpty()) continue;
+            if (seen.add(q.trim().toLowerCase(Locale.ROOT))) distinct.add(q);
+            if (distinct.size() >= MAX_FANOUT_QUERIES) break;
+        }
+        if (distinct.isEmpty()) {
+            mainHandler.post(() -> callback.onError("No query"));
+            return;
+        }
+        if (distinct.size() == 1) {
+            searchPlaylists(distinct.get(0), limit, callback);
+            return;
+        }
 
-        while (results.size() < limit && attempts < MAX_OFFSET_ATTEMPTS) {
-            // Fetch a batch of items
-            int requestSize = Math.min(BATCH_SIZE, limit * 2); // Request more to account for nulls
-            List<SpotifyPlaylist> batch = performSearch(query, requestSize, offset);
+        executorService.execute(() -> {
+            Log.d("SpotifyAPI", "Fan-out search over " + distinct);
+            List<Future<Window>> futures = new ArrayList<>();
+            for (String q : distinct) {
+                futures.add(fanOutExecutor.submit(() -> performSearchWithExactLimit(q, limit, 0, Priority.USER)));
+            }
 
-            if (batch.isEmpty()) {
-                Log.d("SpotifyAPI", "No more results available at offset " + offset);
-                break; // No more results available
+            List<List<SpotifyPlaylist>> rankings = new ArrayList<>();
+            Exception firstError = null;
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Window window = futures.get(i).get();
+                    rankings.add(window.items);
+                    if (i == 0) rememberNextWindow(distinct.get(0), limit, window.nextOffset);
+                } catch (Exception e) {
+                    Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception
+                            ? (Exception) e.getCause() : e;
+                    Log.w("SpotifyAPI", "Fan-out query '" + distinct.get(i) + "' failed: " + cause.getMessage());
+                    if (firstError == null) firstError = cause;
+                }
             }
 
-            // Add valid items until we reach the limit
-            for (SpotifyPlaylist playlist : batch) {
-                if (results.size() >= limit) {
-                    break;
+            if (rankings.isEmpty()) {
+                String errorMsg = firstError != null ? firstError.getMessage() : "All queries failed";
+                mainHandler.post(() -> callback.onError(errorMsg));
+                return;
+            }
+            List<SpotifyPlaylist> merged = fuseRankings(rankings, limit);
+            Log.d("SpotifyAPI", "Fan-out merged " + rankings.size() + " result lists into " + merged.size() + " items");
+            mainHandler.post(() -> callback.onSuccess(merged));
+        });
+    }
+
+    /** Reciprocal-rank fusion of ranked lists, deduplicated by album id; the first 'limit' items. */
+    static List<SpotifyPlaylist> fuseRankings(List<List<SpotifyPlaylist>> rankings, int limit) {
+        Map<String, SpotifyPlaylist> byId = new LinkedHashMap<>(); // first-seen order breaks ties
+        Map<String, Double> scores = new HashMap<>();
+        for (List<SpotifyPlaylist> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                SpotifyPlaylist p = ranking.get(rank);
+                if (p == null || p.id == null) continue;
+                byId.putIfAbsent(p.id, p);
+                scores.merge(p.id, 1.0 / (RRF_K + rank + 1), Double::sum);
+            }
+        }
+        List<SpotifyPlaylist> merged = new ArrayList<>(byId.values());
+        // stable sort: equal scores keep first-seen order
+        merged.sort((a, b) -> Double.compare(scores.get(b.id), scores.get(a.id)));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * "More of the same": the next 'limit' albums for a query that was searched before.
+     * Served from the window prefetched after the previous search when there is one (no network
+     * wait; joins the prefetch if it is still in flight), otherwise fetched now. When the results
+     * run out it starts over from the first page.
+     */
+    public void searchMore(String query, int limit, PlaylistCallback callback) {
+        executorService.execute(() -> {
+            try {
+                String key = windowKey(query, limit);
+                int start = nextOffsets.getOrDefault(key, firstWindowSize(limit));
+                Window window = takePrefetched(key, start);
+                if (window != null) {
+                    prefetchHits.incrementAndGet();
+                    Log.d("SpotifyAPI", "More for '" + query + "' served from prefetch (offset " + start + ")");
+                } else {
+                    prefetchMisses.incrementAndGet();
+                    Log.d("SpotifyAPI", "More for '" + query + "' not prefetched, fetching offset " + start);
+                    window = performSearchWithExactLimit(query, limit, start, Priority.USER);
                 }
-                results.add(playlist);
+                if (window.items.isEmpty() && start > 0) {
+                    Log.d("SpotifyAPI", "No more results for '" + query + "', starting over");
+                    window = performSearchWithExactLimit(query, limit, 0, Priority.USER);
+                }
+                rememberNextWindow(query, limit, window.nextOffset);
+                List<SpotifyPlaylist> playlists = window.items;
+                mainHandler.post(() -> callback.onSuccess(playlists));
+            } catch (Exception e) {
+                String errorMsg = e.getMessage();
+                Log.e("SpotifyAPI", "Search more error: " + errorMsg, e);
+                mainHandler.post(() -> callback.onError(errorMsg));
             }
+        });
+    }
 
-            Log.d("SpotifyAPI", "Collected " + results.size() + "/" + limit + " items (attempt " + (attempts + 1) + ")");
+    /**
+     * Prefetch the window after the first one for results that were shown without a search
+     * (e.g. served from a results store), so a following {@link #searchMore} is instant.
+     */
+    public void prefetchNext(String query, int limit) {
+        String key = windowKey(query, limit);
+        rememberNextWindow(query, limit, nextOffsets.getOrDefault(key, firstWindowSize(limit)));
+    }
 
-            // Move to next batch
-            offset += requestSize;
-            attempts++;
+    /**
+     * Background: adds the tempo of every album in this list that the index doesn't know yet.
+     * Album tracks come from /v1/albums (20 per request), their BPM from /v1/audio-features
+     * (100 per request); an album's tempo is the median over its first tracks. Runs at PREFETCH
+     * priority so it never competes with searches. Results feed {@link TempoIndex#rerankByCadence}.
+     */
+    public void indexTempos(List<SpotifyPlaylist> albums, TempoIndex index) {
+        if (audioFeaturesUnavailable || albums.isEmpty() || prefetchExecutor.isShutdown()) return;
+        List<String> albumIds = new ArrayList<>();
+        for (SpotifyPlaylist p : albums) albumIds.add(p.id);
+        List<String> missing = index.missing(albumIds);
+        if (missing.isEmpty()) return;
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    index.putAll(fetchAlbumTempos(missing));
+                } catch (Exception e) {
+                    Log.w("SpotifyAPI", "Tempo indexing failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down concurrently
         }
+    }
 
-        // Return exactly 'limit' items (or fewer if not enough available)
-        if (results.size() > limit) {
-            results = results.subList(0, limit);
+    // ---------------- Tempo ----------------
+
+    /** album id → median BPM of its sampled tracks, {@link TempoIndex#UNKNOWN} when none had one. */
+    private Map<String, Float> fetchAlbumTempos(List<String> albumIds) throws Exception {
+        Map<String, List<String>> tracksByAlbum = new LinkedHashMap<>();
+        for (int i = 0; i < albumIds.size(); i += ALBUMS_BATCH) {
+            List<String> batch = albumIds.subList(i, Math.min(albumIds.size(), i + ALBUMS_BATCH));
+            HttpUrl url = HttpUrl.get(ALBUMS_URL).newBuilder()
+                    .addQueryParameter("ids", TextUtils.join(",", batch))
+                    .addQueryParameter("market", MARKET)
+                    .build();
+            JsonArray albums = getJson(url).getAsJsonArray("albums");
+            for (JsonElement el : albums) {
+                if (!el.isJsonObject()) continue;
+                JsonObject album = el.getAsJsonObject();
+                List<String> trackIds = new ArrayList<>();
+                JsonArray items = album.getAsJsonObject("tracks").getAsJsonArray("items");
+                for (int t = 0; t < items.size() && trackIds.size() < TRACKS_PER_ALBUM; t++) {
+                    JsonElement id = items.get(t).getAsJsonObject().get("id");
+                    if (id != null && !id.isJsonNull()) trackIds.add(id.getAsString());
+                }
+                tracksByAlbum.put(album.get("id").getAsString(), trackIds);
+            }
         }
 
-        Log.d("SpotifyAPI", "Final result: " + results.size() + " valid items");
-        return results;
+        List<String> allTracks = new ArrayList<>();
+        for (List<String> t : tracksByAlbum.values()) allTracks.addAll(t);
+        Map<String, Float> trackTempo = new HashMap<>();
+        for (int i = 0; i < allTracks.size(); i += AUDIO_FEATURES_BATCH) {
+            List<String> batch = allTracks.subList(i, Math.min(allTracks.size(), i + AUDIO_FEATURES_BATCH));
+            HttpUrl url = HttpUrl.get(AUDIO_FEATURES_URL).newBuilder()
+                    .addQueryParameter("ids", TextUtils.join(",", batch))
+                    .build();
+            for (JsonElement el : getJson(url).getAsJsonArray("audio_features")) {
+                if (!el.isJsonObject()) continue; // null for tracks without analysis
+                JsonObject f = el.getAsJsonObject();
+                if (f.has("tempo") && !f.get("tempo").isJsonNull()) {
+                    trackTempo.put(f.get("id").getAsString(), f.get("tempo").getAsFloat());
+                }
+            }
+        }
+
+        Map<String, Float> out = new HashMap<>();
+        for (String albumId : albumIds) {
+            List<String> tracks = tracksByAlbum.get(albumId);
+            float[] bpms = new float[tracks == null ? 0 : tracks.size()];
+            int n = 0;
+            if (tracks != null) {
+                for (String t : tracks) {
+                    Float bpm = trackTempo.get(t);
+                    if (bpm != null && bpm > 0) bpms[n++] = bpm;
+                }
+            }
+            if (n == 0) {
+                out.put(albumId, TempoIndex.UNKNOWN);
+            } else {
+                Arrays.sort(bpms, 0, n);
+                out.put(albumId, bpms[n / 2]);
+            }
+        }
+        return out;
     }
 
-    private List<SpotifyPlaylist> performSearch(String query, int limit, int offset) throws Exception {
-        List<SpotifyPlaylist> playlists = new ArrayList<>();
+    private JsonObject getJson(HttpUrl url) throws Exception {
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .header("Authorization", "Bearer " + currentToken())
+                .build();
+        try (Response response = executeScheduled(httpClient.newCall(request), Priority.PREFETCH, null)) {
+            ResponseBody responseBody = response.body();
+            String body = responseBody != null ? responseBody.string() : "";
+            if ((response.code() == 403 || response.code() == 404) && url.encodedPath().endsWith("/audio-features")) {
+                audioFeaturesUnavailable = true;
+                Log.w("SpotifyAPI", "Audio features not available for this app (HTTP " + response.code() + "), tempo indexing disabled");
+            }
+            if (!response.isSuccessful()) {
+                throw new Exception("HTTP " + response.code() + ": " + body);
+            }
+            return JsonParser.parseString(body).getAsJsonObject();
+        }
+    }
 
-        String encodedQuery = URLEncoder.encode(query, "UTF-8");
-        String urlString = BASE_URL + "?q=" + encodedQuery +
-                "&type=album&limit=" + limit + "&offset=" + offset + "&market=AU";
+    // ---------------- Prefetch ----------------
 
-        Log.d("SpotifyAPI", "➡️ Request URL: " + urlString);
+    private static String windowKey(String query, int limit) {
+        return query.trim().toLowerCase(Locale.ROOT) + "|" + limit;
+    }
 
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Authorization", "Bearer " + accessToken);
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setConnectTimeout(8000);
-        conn.setReadTimeout(10000);
+    /** Offset right after the first window when nothing else is known (one page consumed). */
+    private static int firstWindowSize(int limit) {
+        return Math.min(BATCH_SIZE, limit * 2);
+    }
 
-        int responseCode = conn.getResponseCode();
-        Log.d("SpotifyAPI", "⬅️ Status: " + responseCode);
+    private void rememberNextWindow(String query, int limit, int nextOffset) {
+        String key = windowKey(query, limit);
+        nextOffsets.put(key, nextOffset);
+        if (!prefetchEnabled || prefetchExecutor.isShutdown()) return;
+
+        Prefetch current = prefetches.get(key);
+        if (current != null && current.startOffset == nextOffset && !isExpired(current)) return;
+
+        try {
+            Future<Window> future = prefetchExecutor.submit(
+                    () -> performSearchWithExactLimit(query, limit, nextOffset, Priority.PREFETCH));
+            prefetches.put(key, new Prefetch(nextOffset, future));
+            Log.d("SpotifyAPI", "Prefetching '" + query + "' from offset " + nextOffset);
+        } catch (RejectedExecutionException e) {
+            // shut down concurrently; nothing to prefetch
+        }
+    }
 
-        InputStream is = responseCode >= 400 ? conn.getErrorStream() : conn.getInputStream();
-        if (is == null) {
-            conn.disconnect();
-            throw new Exception("HTTP " + responseCode);
+    /** The prefetched window starting at startOffset, waiting for it if still in flight; else null. */
+    @Nullable
+    private Window takePrefetched(String key, int startOffset) {
+        Prefetch p = prefetches.remove(key);
+        if (p == null || p.startOffset != startOffset || isExpired(p)) {
+            if (p != null) p.future.cancel(false);
+            return null;
         }
+        try {
+            return p.future.get(Priority.USER.maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w("SpotifyAPI", "Prefetch for " + key + " unusable: " + e.getMessage());
+            return null;
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-            StringBuilder response = new StringBuilder();
-            for (String line; (line = reader.readLine()) != null; ) {
-                response.append(line);
-            }
+    private static boolean isExpired(Prefetch p) {
+        return System.currentTimeMillis() - p.startedAt > PREFETCH_TTL_MS;
+    }
+
+    // ---------------- Search ----------------
 
-            if (responseCode >= 400) {
-                throw new Exception("HTTP " + responseCode + ": " + response.toString());
+    /**
+     * Keeps querying the API with pagination from startOffset until we have exactly 'limit' valid
+     * items or we've exhausted available results.
+     */
+    private Window performSearchWithExactLimit(String query, int limit, int startOffset, Priority priority) throws Exception {
+        Collector collector = new Collector(limit, startOffset);
+        int offset = startOffset;
+        int attempts = 0;
+
+        while (!collector.isFull() && attempts < MAX_OFFSET_ATTEMPTS) {
+            // Fetch a batch of items
+            int requestSize = Math.min(BATCH_SIZE, limit * 2); // Request more to account for nulls
+            SpotifyAlbumParser.Result batch = performSearch(query, requestSize, offset, collector.wanted(), priority);
+
+            if (batch.albums.isEmpty()) {
+                Log.d("SpotifyAPI", "No more results available at offset " + offset);
+                break; // No more results available
             }
 
-            // Parse JSON response
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            JSONObject albumsObj = jsonResponse.getJSONObject("albums");
-            JSONArray items = albumsObj.getJSONArray("items");
+            // Add valid items until we reach the limit
+            collector.addPage(batch, offset);
 
-            int nullCount = 0;
-            for (int i = 0; i < items.length(); i++) {
-                // Skip null items
-                if (items.isNull(i)) {
-                    nullCount++;
-                    continue;
-                }
+            Log.d("SpotifyAPI", "Collected " + collector.size() + "/" + limit + " items (attempt " + (attempts + 1) + ")");
 
-                JSONObject item = items.getJSONObject(i);
+            // Move to next batch
+            offset += requestSize;
+            attempts++;
+        }
 
-                // Validate essential fields before creating playlist object
-                String id = item.optString("id", "");
-                if (id.isEmpty()) {
-                    nullCount++;
-                    continue; // Skip items without valid ID
-                }
+        // Exactly 'limit' items (or fewer if not enough available)
+        List<SpotifyPlaylist> results = collector.finish();
+        Log.d("SpotifyAPI", "Final result: " + results.size() + " valid items");
+        return new Window(results, collector.nextOffset());
+    }
 
-                String name = item.optString("name", "Unknown");
-                String description = item.optString("album_type", "album");
+    /**
+     * Same contract as {@link #performSearchWithExactLimit}. The first page is fetched on its own,
+     * since it usually fills 'limit' by itself; only when it comes back short are the next
+     * PARALLEL_PAGES offsets requested at once on a bounded pool. Those pages are merged strictly
+     * in offset order; once 'limit' valid items are collected (or a page comes back empty) the
+     * outstanding requests are cancelled. Fetched-but-unused pages are counted as wasted.
+     * If the parallel pages still leave us short, the remaining offsets are fetched one by one.
+     */
+    private Window performSearchParallel(String query, int limit, Priority priority) throws Exception {
+        int requestSize = Math.min(BATCH_SIZE, limit * 2); // Request more to account for nulls
+        Collector collector = new Collector(limit, 0);
+
+        pagesFetched.incrementAndGet();
+        SpotifyAlbumParser.Result first = performSearch(query, requestSize, 0, collector.wanted(), priority);
+        boolean exhausted = first.albums.isEmpty();
+        collector.addPage(first, 0);
+        int offset = requestSize;
+        int attempts = 1;
+
+        if (!collector.isFull() && !exhausted) {
+            // Short first page → request the next ones together instead of one round trip each
+            int pages = Math.min(PARALLEL_PAGES, MAX_OFFSET_ATTEMPTS - attempts);
+            final int maxValid = collector.wanted();
+            List<Future<SpotifyAlbumParser.Result>> futures = new ArrayList<>();
+            List<AtomicReference<Call>> calls = new ArrayList<>(); // set once a page's request is sent
+            for (int i = 0; i < pages; i++) {
+                final int pageOffset = offset + i * requestSize;
+                final AtomicReference<Call> callRef = new AtomicReference<>();
+                calls.add(callRef);
+                futures.add(pageExecutor.submit(() -> {
+                    pagesFetched.incrementAndGet();
+                    return performSearch(query, requestSize, pageOffset, maxValid, priority, callRef);
+                }));
+            }
 
-                // Get image URL
-                String imageUrl = "";
-                JSONArray images = item.optJSONArray("images");
-                if (images != null && images.length() > 0) {
-                    imageUrl = images.getJSONObject(0).optString("url", "");
+            int used = 0;
+            try {
+                for (; used < futures.size() && !collector.isFull() && !exhausted; used++) {
+                    SpotifyAlbumParser.Result batch;
+                    try {
+                        batch = futures.get(used).get();
+                    } catch (ExecutionException e) {
+                        // We already have the first page; a failing later page just ends the merge
+                        Log.w("SpotifyAPI", "Page " + (used + 1) + " failed, keeping " + collector.size() + " items", e.getCause());
+                        used++;
+                        exhausted = true;
+                        break;
+                    }
+                    int pageOffset = offset + used * requestSize;
+                    if (batch.albums.isEmpty()) {
+                        Log.d("SpotifyAPI", "No more results available at offset " + pageOffset);
+                        exhausted = true;
+                    }
+                    collector.addPage(batch, pageOffset);
                 }
-
-                // Get artist name
-                String ownerName = "Unknown";
-                JSONArray artists = item.optJSONArray("artists");
-                if (artists != null && artists.length() > 0) {
-                    JSONObject artist = artists.getJSONObject(0);
-                    ownerName = artist.optString("name", "Unknown");
+            } finally {
+                // Anything after the last merged page is surplus: stop it, and count it if it already ran
+                int wasted = 0;
+                for (int i = used; i < futures.size(); i++) {
+                    futures.get(i).cancel(false);
+                    Call inFlight = calls.get(i).get();
+                    if (inFlight != null) {
+                        inFlight.cancel(); // aborts the socket read, frees the pooled stream
+                        wasted++;
+                    }
                 }
+                if (wasted > 0) {
+                    pagesWasted.addAndGet(wasted);
+                    Log.d("SpotifyAPI", "Parallel pagination wasted " + wasted + " page(s) (total "
+                            + pagesWasted.get() + "/" + pagesFetched.get() + ")");
+                }
+            }
+            offset += used * requestSize;
+            attempts += pages;
+        }
 
-                // Get total tracks
-                int totalTracks = item.optInt("total_tracks", 0);
+        // Still short after the parallel pages → continue sequentially
+        for (; !collector.isFull() && !exhausted && attempts < MAX_OFFSET_ATTEMPTS; attempts++) {
+            SpotifyAlbumParser.Result batch = performSearch(query, requestSize, offset, collector.wanted(), priority);
+            if (batch.albums.isEmpty()) break;
+            collector.addPage(batch, offset);
+            offset += requestSize;
+        }
 
-                // Get external URL
-                String externalUrl = "";
-                JSONObject urls = item.optJSONObject("external_urls");
-                if (urls != null) {
-                    externalUrl = urls.optString("spotify", "");
-                }
+        List<SpotifyPlaylist> results = collector.finish();
+        Log.d("SpotifyAPI", "Final result: " + results.size() + " valid items (parallel, " + collector.pageCount() + " page(s) merged)");
+        return new Window(results, collector.nextOffset());
+    }
 
-                // Only add if we have a valid external URL
-                if (!externalUrl.isEmpty()) {
-                    playlists.add(new SpotifyPlaylist(id, name, description, imageUrl,
-                            ownerName, totalTracks, externalUrl));
-                } else {
-                    nullCount++;
-                }
+    /** @param maxValid parsing stops once this many valid albums were read from the page */
+    private SpotifyAlbumParser.Result performSearch(String query, int limit, int offset, int maxValid,
+                                                    Priority priority) throws Exception {
+        return performSearch(query, limit, offset, maxValid, priority, null);
+    }
+
+    /** @param callRef receives the in-flight call so the caller can cancel it; may be null */
+    private SpotifyAlbumParser.Result performSearch(String query, int limit, int offset, int maxValid,
+                                                    Priority priority,
+                                                    @Nullable AtomicReference<Call> callRef) throws Exception {
+        if (responseCache == null) {
+            return fetchStreaming(query, limit, offset, maxValid, priority, callRef);
+        }
+
+        String cacheKey = SpotifyResponseCache.key(query, SEARCH_TYPE, MARKET, limit, offset);
+        SpotifyResponseCache.Entry cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            if (responseCache.isFresh(cached)) {
+                responseCache.recordFreshHit();
+                Log.d("SpotifyAPI", "Cache hit (fresh) for " + cacheKey);
+            } else {
+                // Stale-while-revalidate: answer now, refresh for next time
+                responseCache.recordStaleHit();
+                Log.d("SpotifyAPI", "Cache hit (stale, " + cached.ageMs() / 60000 + " min) for " + cacheKey);
+                revalidateAsync(query, limit, offset, cacheKey, cached);
+            }
+            return parseAlbums(new StringReader(cached.body), maxValid);
+        }
+
+        responseCache.recordMiss();
+        String body = fetch(query, limit, offset, priority, callRef, cacheKey, null);
+        return parseAlbums(new StringReader(body), maxValid);
+    }
+
+    private Call newSearchCall(String query, int limit, int offset, @Nullable String etag) {
+        HttpUrl url = HttpUrl.get(BASE_URL).newBuilder()
+                .addQueryParameter("q", query)
+                .addQueryParameter("type", SEARCH_TYPE)
+                .addQueryParameter("limit", String.valueOf(limit))
+                .addQueryParameter("offset", String.valueOf(offset))
+                .addQueryParameter("market", MARKET)
+                .build();
+
+        Log.d("SpotifyAPI", "➡️ Request URL: " + url);
+
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .get()
+                .header("Authorization", "Bearer " + currentToken());
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+        return httpClient.newCall(builder.build());
+    }
+
+    /**
+     * Uncached path: parse straight off the socket and stop reading as soon as maxValid albums
+     * are in hand (closing the response early discards the rest of the body).
+     */
+    private SpotifyAlbumParser.Result fetchStreaming(String query, int limit, int offset, int maxValid,
+                                                     Priority priority,
+                                                     @Nullable AtomicReference<Call> callRef) throws Exception {
+        Call call = newSearchCall(query, limit, offset, null);
+        try (Response response = executeScheduled(call, priority, callRef)) {
+            Log.d("SpotifyAPI", "⬅️ Status: " + response.code() + " (" + response.protocol() + ")");
+            ResponseBody responseBody = response.body();
+            if (!response.isSuccessful()) {
+                throw new Exception("HTTP " + response.code() + ": " + (responseBody != null ? responseBody.string() : ""));
+            }
+            if (responseBody == null) return SpotifyAlbumParser.Result.empty();
+            return parseAlbums(responseBody.charStream(), maxValid);
+        }
+    }
+
+    /**
+     * One network round trip. Successful bodies are stored in the response cache under cacheKey.
+     * With a previous entry that has an ETag the request is conditional, and a 304 returns the
+     * previous body with its freshness restarted.
+     */
+    private String fetch(String query, int limit, int offset, Priority priority,
+                         @Nullable AtomicReference<Call> callRef,
+                         @Nullable String cacheKey, @Nullable SpotifyResponseCache.Entry previous) throws Exception {
+        Call call = newSearchCall(query, limit, offset, previous != null ? previous.etag : null);
+        try (Response response = executeScheduled(call, priority, callRef)) {
+            Log.d("SpotifyAPI", "⬅️ Status: " + response.code() + " (" + response.protocol() + ")");
+            if (response.code() == 304 && previous != null && cacheKey != null && responseCache != null) {
+                responseCache.touch(cacheKey, previous);
+                return previous.body;
+            }
+            ResponseBody responseBody = response.body();
+            String body = responseBody != null ? responseBody.string() : "";
+            if (!response.isSuccessful()) {
+                throw new Exception("HTTP " + response.code() + ": " + body);
             }
+            if (cacheKey != null && responseCache != null) {
+                responseCache.put(cacheKey, body, response.header("ETag"));
+            }
+            return body;
+        }
+    }
 
-            if (nullCount > 0) {
-                Log.d("SpotifyAPI", "Skipped " + nullCount + " null/invalid items in this batch");
+    /**
+     * Executes a Spotify call behind the shared rate limiter. A 429 pauses every Spotify request
+     * for the server's Retry-After and the call is retried, unless the wait exceeds what this
+     * priority tolerates (then the 429 is returned and the caller falls back).
+     * A 401 with the token provider (token revoked early) is retried once with a new token.
+     */
+    private Response executeScheduled(Call call, Priority priority,
+                                      @Nullable AtomicReference<Call> callRef) throws Exception {
+        boolean reauthorized = false;
+        for (int attempt = 0; ; attempt++) {
+            if (!scheduler.acquire(priority)) {
+                throw new IOException("Spotify rate limit: no permit within " + priority.maxWaitMs + " ms");
             }
+            if (callRef != null) callRef.set(call);
+            Response response = call.execute();
+            if (response.code() == 401 && !reauthorized && tokenProvider != null
+                    && tokenProvider.invalidate(bearerToken(call.request()))) {
+                response.close();
+                reauthorized = true;
+                Log.w("SpotifyAPI", "Token rejected, retrying with a new one");
+                call = httpClient.newCall(call.request().newBuilder()
+                        .header("Authorization", "Bearer " + currentToken())
+                        .build());
+                continue;
+            }
+            if (response.code() != 429) return response;
 
-        } finally {
-            conn.disconnect();
+            long retryAfterMs = SpotifyRequestScheduler.parseRetryAfterMs(response.header("Retry-After"));
+            scheduler.onThrottled(retryAfterMs);
+            if (attempt >= MAX_RATE_LIMIT_RETRIES || retryAfterMs > priority.maxWaitMs) {
+                return response; // surfaces as "HTTP 429"
+            }
+            response.close();
+            NetworkTelemetry.recordRetry(NetworkTelemetry.endpointFor(call.request().url()));
+            call = call.clone();
         }
+    }
 
-        return playlists;
+    private static String bearerToken(Request request) {
+        String header = request.header("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7) : "";
+    }
+
+    private String currentToken() {
+        return tokenProvider != null ? tokenProvider.getToken() : accessToken;
+    }
+
+    private void revalidateAsync(String query, int limit, int offset, String cacheKey,
+                                 SpotifyResponseCache.Entry stale) {
+        if (!REVALIDATING.add(cacheKey)) return; // already being refreshed
+        REVALIDATOR.execute(() -> {
+            try {
+                fetch(query, limit, offset, Priority.PREFETCH, null, cacheKey, stale);
+            } catch (Exception e) {
+                Log.w("SpotifyAPI", "Background revalidation failed for " + cacheKey + ": " + e.getMessage());
+            } finally {
+                REVALIDATING.remove(cacheKey);
+            }
+        });
+    }
+
+    private SpotifyAlbumParser.Result parseAlbums(Reader body, int maxValid) throws Exception {
+        SpotifyAlbumParser.Result result = SpotifyAlbumParser.parse(body, maxValid);
+        if (result.skipped > 0) {
+            Log.d("SpotifyAPI", "Skipped " + result.skipped + " null/invalid items in this batch");
+        }
+        if (result.truncated) {
+            Log.d("SpotifyAPI", "Stopped parsing after " + result.albums.size() + " valid items");
+        }
+        return result;
     }
 
     // Clean up resources when done
@@ -211,5 +879,15 @@ public class SpotifyAPI {
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
+        if (pageExecutor != null && !pageExecutor.isShutdown()) {
+            pageExecutor.shutdownNow();
+        }
+        if (fanOutExecutor != null && !fanOutExecutor.isShutdown()) {
+            fanOutExecutor.shutdownNow();
+        }
+        if (prefetchExecutor != null && !prefetchExecutor.isShutdown()) {
+            prefetchExecutor.shutdownNow();
+        }
+        prefetches.clear();
     }
 }
\ No newline at end of file
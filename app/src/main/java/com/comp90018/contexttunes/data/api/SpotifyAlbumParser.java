@@ -0,0 +1,191 @@
+package com.comp90018.contexttunes.data.api;
+
+import androidx.annotation.NonNull;
+
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming parser for Spotify /v1/search?type=album responses.
+ * Reads only albums.items[*].{id, name, album_type, images[*].{url, width, height}, artists[0].name,
+ * total_tracks, external_urls.spotify}; every other subtree is skipped without being materialised, and parsing
+ * stops as soon as maxValid valid albums have been produced (the rest of the input is never read).
+ *
+ * Validation matches the old org.json path: null items, items without an id and items without a
+ * Spotify URL are skipped and counted.
+ */
+public final class SpotifyAlbumParser {
+
+    private SpotifyAlbumParser() {}
+
+    public static final class Result {
+        public final List<SpotifyPlaylist> albums;
+        public final int[] positions;    // index in albums.items of each album (null / invalid items count too)
+        public final int skipped;        // null / invalid items seen before stopping
+        public final boolean truncated;  // stopped early because maxValid was reached
+
+        Result(List<SpotifyPlaylist> albums, int[] positions, int skipped, boolean truncated) {
+            this.albums = albums;
+            this.positions = positions;
+            this.skipped = skipped;
+            this.truncated = truncated;
+        }
+
+        static Result empty() {
+            return new Result(new ArrayList<>(), new int[0], 0, false);
+        }
+    }
+
+    @NonNull
+    public static Result parse(@NonNull Reader in, int maxValid) throws IOException {
+        List<SpotifyPlaylist> out = new ArrayList<>(Math.max(0, Math.min(maxValid, 50)));
+        int[] positions = new int[Math.max(0, Math.min(maxValid, 50))];
+        int skipped = 0;
+        if (maxValid <= 0) return new Result(out, positions, 0, true);
+
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"albums".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"items".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                for (int index = 0; reader.hasNext(); index++) {
+                    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue(); // null item
+                        skipped++;
+                        continue;
+                    }
+                    SpotifyPlaylist album = readAlbum(reader);
+                    if (album == null) {
+                        skipped++;
+                        continue;
+                    }
+                    if (out.size() == positions.length) positions = Arrays.copyOf(positions, positions.length * 2 + 1);
+                    positions[out.size()] = index;
+                    out.add(album);
+                    if (out.size() >= maxValid) {
+                        return new Result(out, Arrays.copyOf(positions, out.size()), skipped, true); // early termination
+                    }
+                }
+                return new Result(out, Arrays.copyOf(positions, out.size()), skipped, false); // items was the only array we need
+            }
+            return new Result(out, new int[0], skipped, false);
+        }
+        throw new IOException("Response has no 'albums' object");
+    }
+
+    /** Reads one album object; null when it lacks an id or a Spotify URL. */
+    private static SpotifyPlaylist readAlbum(JsonReader reader) throws IOException {
+        String id = "";
+        String name = "Unknown";
+        String albumType = "album";
+        List<SpotifyPlaylist.Image> images = new ArrayList<>(3);
+        String ownerName = "Unknown";
+        int totalTracks = 0;
+        String externalUrl = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":            id = reader.nextString(); break;
+                case "name":          name = reader.nextString(); break;
+                case "album_type":    albumType = reader.nextString(); break;
+                case "total_tracks":  totalTracks = reader.nextInt(); break;
+                case "images":        readImages(reader, images); break;
+                case "artists":       ownerName = firstStringField(reader, "name", "Unknown"); break;
+                case "external_urls": externalUrl = stringField(reader, "spotify", ""); break;
+                default:              reader.skipValue(); // available_markets, release_date, ...
+            }
+        }
+        reader.endObject();
+
+        if (id.isEmpty() || externalUrl.isEmpty()) return null;
+        String imageUrl = images.isEmpty() ? "" : images.get(0).url; // largest first
+        return new SpotifyPlaylist(id, name, albumType, imageUrl, images, ownerName, totalTracks, externalUrl);
+    }
+
+    /** images: [{url, width, height}, ...] (largest first); entries without a url are dropped. */
+    private static void readImages(JsonReader reader, List<SpotifyPlaylist.Image> out) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            String url = "";
+            int width = 0, height = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                JsonToken t = reader.peek();
+                if ("url".equals(field) && t == JsonToken.STRING) url = reader.nextString();
+                else if ("width".equals(field) && t == JsonToken.NUMBER) width = reader.nextInt();
+                else if ("height".equals(field) && t == JsonToken.NUMBER) height = reader.nextInt();
+                else reader.skipValue();
+            }
+            reader.endObject();
+            if (!url.isEmpty()) out.add(new SpotifyPlaylist.Image(url, width, height));
+        }
+        reader.endArray();
+    }
+
+    /** Array of objects → value of key in the first element; later elements are skipped. */
+    private static String firstStringField(JsonReader reader, String key, String fallback) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return fallback;
+        }
+        String value = fallback;
+        reader.beginArray();
+        if (reader.hasNext()) {
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) value = stringField(reader, key, fallback);
+            else reader.skipValue();
+        }
+        while (reader.hasNext()) reader.skipValue();
+        reader.endArray();
+        return value;
+    }
+
+    /** Object → value of key; other members are skipped. */
+    private static String stringField(JsonReader reader, String key, String fallback) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return fallback;
+        }
+        String value = fallback;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (key.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+}
@@ -0,0 +1,162 @@
+package com.comp90018.contexttunes.data.api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Client-side rate limiter in front of every Spotify request, shared by all SpotifyAPI instances
+ * (the limit is per app, not per screen).
+ *
+ * - Token bucket: bursts up to BUCKET_CAPACITY requests, then REFILL_PER_SECOND sustained.
+ * - Retry-After: after a 429 nobody gets a permit until the server's back-off has elapsed.
+ * - Priorities: a request only takes a permit when no higher-priority request is waiting, so
+ *   prefetch / warming traffic queues behind user-initiated searches.
+ *
+ * Usage (blocking; call from a worker thread):
+ *   if (!scheduler.acquire(Priority.USER)) throw new IOException("rate limited");
+ *   ... execute ...
+ *   if (code == 429) scheduler.onThrottled(retryAfterMs);
+ */
+public final class SpotifyRequestScheduler {
+
+    private static final String TAG = "SpotifyScheduler";
+
+    private static final double BUCKET_CAPACITY = 6;
+    private static final double REFILL_PER_SECOND = 3;
+    public static final long DEFAULT_RETRY_AFTER_MS = 2000; // 429 without a usable Retry-After
+
+    /** Highest first. */
+    public enum Priority {
+        USER(5_000),        // GO / Regenerate: give up quickly and let the UI fall back
+        PREFETCH(30_000),   // next pages, stale revalidation
+        WARM(120_000);      // background cache warming
+
+        /** Longest a request of this priority waits for a permit before failing. */
+        public final long maxWaitMs;
+
+        Priority(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+    }
+
+    private static final SpotifyRequestScheduler INSTANCE = new SpotifyRequestScheduler();
+
+    private double tokens = BUCKET_CAPACITY;
+    private long lastRefill = SystemClock.elapsedRealtime();
+    private long blockedUntil = 0;                         // Retry-After deadline (elapsedRealtime)
+    private final int[] waiting = new int[Priority.values().length];
+
+    // Metrics
+    private int maxQueueDepth = 0;
+    private long throttleEvents = 0;   // 429 responses seen
+    private long delayedRequests = 0;  // permits that were not available immediately
+    private long rejectedRequests = 0; // gave up after maxWaitMs
+    private long totalWaitMs = 0;
+
+    private SpotifyRequestScheduler() {}
+
+    @NonNull
+    public static SpotifyRequestScheduler getInstance() { return INSTANCE; }
+
+    /**
+     * Blocks until a permit is available for this priority.
+     * @return false if none became available within the priority's max wait
+     */
+    public synchronized boolean acquire(@NonNull Priority priority) throws InterruptedException {
+        long start = SystemClock.elapsedRealtime();
+        long deadline = start + priority.maxWaitMs;
+        waiting[priority.ordinal()]++;
+        maxQueueDepth = Math.max(maxQueueDepth, getQueueDepth());
+        boolean delayed = false;
+        try {
+            while (true) {
+                long now = SystemClock.elapsedRealtime();
+                refill(now);
+
+                long sleep;
+                if (now < blockedUntil) {
+                    sleep = blockedUntil - now;
+                } else if (higherPriorityWaiting(priority)) {
+                    sleep = 100; // re-check; woken early when they leave
+                } else if (tokens >= 1) {
+                    tokens -= 1;
+                    if (delayed) {
+                        delayedRequests++;
+                        totalWaitMs += now - start;
+                    }
+                    return true;
+                } else {
+                    sleep = (long) Math.ceil((1 - tokens) * 1000 / REFILL_PER_SECOND);
+                }
+
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    rejectedRequests++;
+                    Log.w(TAG, priority + " request gave up after " + priority.maxWaitMs + " ms (depth=" + getQueueDepth() + ")");
+                    return false;
+                }
+                delayed = true;
+                wait(Math.max(1, Math.min(sleep, remaining)));
+            }
+        } finally {
+            waiting[priority.ordinal()]--;
+            notifyAll(); // lower priorities may proceed now
+        }
+    }
+
+    /** The server answered 429: hold every request until its Retry-After has passed. */
+    public synchronized void onThrottled(long retryAfterMs) {
+        throttleEvents++;
+        long until = SystemClock.elapsedRealtime() + Math.max(0, retryAfterMs);
+        if (until > blockedUntil) blockedUntil = until;
+        tokens = 0; // the server says we're over; don't burst straight back into it
+        Log.w(TAG, "Throttled by Spotify, backing off " + retryAfterMs + " ms (events=" + throttleEvents + ")");
+        notifyAll();
+    }
+
+    /** Retry-After header (delta-seconds form) in ms; default when absent or unparseable. */
+    public static long parseRetryAfterMs(@Nullable String header) {
+        if (header == null) return DEFAULT_RETRY_AFTER_MS;
+        try {
+            return Math.max(0, Long.parseLong(header.trim())) * 1000L;
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER_MS;
+        }
+    }
+
+    // ---------------- Metrics ----------------
+
+    public synchronized int getQueueDepth() {
+        int n = 0;
+        for (int w : waiting) n += w;
+        return n;
+    }
+
+    public synchronized int getQueueDepth(@NonNull Priority priority) { return waiting[priority.ordinal()]; }
+    public synchronized int getMaxQueueDepth() { return maxQueueDepth; }
+    public synchronized long getThrottleEventCount() { return throttleEvents; }
+    public synchronized long getDelayedRequestCount() { return delayedRequests; }
+    public synchronized long getRejectedRequestCount() { return rejectedRequests; }
+    public synchronized long getTotalWaitMs() { return totalWaitMs; }
+
+    /** Remaining Retry-After back-off, 0 when not throttled. */
+    public synchronized long getBackoffRemainingMs() {
+        return Math.max(0, blockedUntil - SystemClock.elapsedRealtime());
+    }
+
+    // ---------------- Internals ----------------
+
+    private void refill(long now) {
+        double add = (now - lastRefill) * REFILL_PER_SECOND / 1000.0;
+        tokens = Math.min(BUCKET_CAPACITY, tokens + add);
+        lastRefill = now;
+    }
+
+    private boolean higherPriorityWaiting(Priority p) {
+        for (int i = 0; i < p.ordinal(); i++) {
+            if (waiting[i] > 0) return true;
+        }
+        return false;
+    }
+}
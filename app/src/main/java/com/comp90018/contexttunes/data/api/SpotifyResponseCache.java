@@ -0,0 +1,252 @@
+package com.comp90018.contexttunes.data.api;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory + disk cache of raw Spotify search responses, keyed by (query, type, market, limit, offset).
+ * - Memory: access-ordered LRU bounded by total body size
+ * - Disk: one JSON file per key under cacheDir/spotify_search, oldest files evicted past a byte budget
+ *
+ * Freshness (decided by the caller via {@link Entry#ageMs()}):
+ *   age < ttl            → serve, no network
+ *   age < maxStale       → serve, revalidate in the background (If-None-Match when we have an ETag)
+ *   older / missing      → network
+ *
+ * Thread-safe: used from the search executor, the page pool and the revalidation thread.
+ * Only the memory tier is guarded by the lock. Disk reads happen outside it on the calling
+ * thread; disk writes, deletes and trims run on a single background thread.
+ */
+public class SpotifyResponseCache {
+
+    private static final String TAG = "SpotifyResponseCache";
+    private static final String DIR_NAME = "spotify_search";
+
+    public static final long DEFAULT_TTL_MS = 60 * 60 * 1000L;            // 1 h fresh
+    public static final long DEFAULT_MAX_STALE_MS = 24 * 60 * 60 * 1000L; // served stale for up to 1 day
+    private static final long MAX_MEMORY_BYTES = 512 * 1024;
+    private static final long MAX_DISK_BYTES = 4 * 1024 * 1024;
+
+    /** One cached response. */
+    public static class Entry {
+        public final String body;
+        @Nullable public final String etag;
+        final long storedAt;
+
+        Entry(String body, @Nullable String etag, long storedAt) {
+            this.body = body;
+            this.etag = etag;
+            this.storedAt = storedAt;
+        }
+
+        public long ageMs() { return System.currentTimeMillis() - storedAt; }
+    }
+
+    private static volatile SpotifyResponseCache INSTANCE;
+
+    private final long ttlMs;
+    private final long maxStaleMs;
+    @Nullable private final File dir; // null → memory-only
+    @Nullable private final ExecutorService diskExecutor;
+    private final Gson gson = new Gson();
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+
+    private final AtomicLong freshHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong(); // 304 Not Modified
+    private final AtomicLong misses = new AtomicLong();
+
+    /** @param cacheDir app cache directory, or null for a memory-only cache */
+    public SpotifyResponseCache(@Nullable File cacheDir, long ttlMs, long maxStaleMs) {
+        this.ttlMs = ttlMs;
+        this.maxStaleMs = maxStaleMs;
+        File d = cacheDir == null ? null : new File(cacheDir, DIR_NAME);
+        if (d != null && !d.isDirectory() && !d.mkdirs()) {
+            Log.w(TAG, "Cannot create " + d + ", using memory only");
+            d = null;
+        }
+        this.dir = d;
+        this.diskExecutor = d == null ? null : Executors.newSingleThreadExecutor();
+    }
+
+    /** Process-wide cache in the app cache dir, shared by every SpotifyAPI instance. */
+    public static SpotifyResponseCache getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (SpotifyResponseCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SpotifyResponseCache(ctx.getApplicationContext().getCacheDir(),
+                            DEFAULT_TTL_MS, DEFAULT_MAX_STALE_MS);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @NonNull
+    public static String key(@NonNull String query, @NonNull String type, @NonNull String market,
+                             int limit, int offset) {
+        return query.trim().toLowerCase(Locale.ROOT) + "|" + type + "|" + market + "|" + limit + "|" + offset;
+    }
+
+    /** Cached entry no older than maxStale, or null. Promotes disk hits into memory. */
+    @Nullable
+    public Entry get(@NonNull String key) {
+        Entry e;
+        synchronized (this) {
+            e = memory.get(key);
+        }
+        if (e == null) {
+            e = readDisk(key); // outside the lock: other threads keep using the memory tier
+            if (e == null) return null;
+            synchronized (this) {
+                Entry newer = memory.get(key);
+                if (newer != null) e = newer; // put() won while we were reading
+                else putMemory(key, e);
+            }
+        }
+        if (e.ageMs() > maxStaleMs) {
+            remove(key);
+            return null;
+        }
+        return e;
+    }
+
+    public void put(@NonNull String key, @NonNull String body, @Nullable String etag) {
+        Entry e = new Entry(body, etag, System.currentTimeMillis());
+        synchronized (this) {
+            putMemory(key, e);
+        }
+        if (diskExecutor != null) diskExecutor.execute(() -> writeDisk(key, e));
+    }
+
+    /** Server answered 304: same body, freshness restarts now. */
+    public void touch(@NonNull String key, @NonNull Entry e) {
+        revalidated.incrementAndGet();
+        put(key, e.body, e.etag);
+    }
+
+    public boolean isFresh(@NonNull Entry e) { return e.ageMs() <= ttlMs; }
+
+    // ---------------- Stats ----------------
+
+    void recordFreshHit() { freshHits.incrementAndGet(); }
+    void recordStaleHit() { staleHits.incrementAndGet(); }
+    void recordMiss() { misses.incrementAndGet(); }
+
+    public long getFreshHitCount() { return freshHits.get(); }
+    public long getStaleHitCount() { return staleHits.get(); }
+    public long getRevalidatedCount() { return revalidated.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    // ---------------- Memory tier ----------------
+
+    private void putMemory(String key, Entry e) {
+        Entry old = memory.put(key, e);
+        if (old != null) memoryBytes -= old.body.length();
+        memoryBytes += e.body.length();
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > MAX_MEMORY_BYTES && it.hasNext()) {
+            memoryBytes -= it.next().getValue().body.length();
+            it.remove();
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Entry old = memory.remove(key);
+            if (old != null) memoryBytes -= old.body.length();
+        }
+        if (diskExecutor != null) {
+            //noinspection ResultOfMethodCallIgnored
+            diskExecutor.execute(() -> fileFor(key).delete());
+        }
+    }
+
+    // ---------------- Disk tier ----------------
+
+    @Nullable
+    private Entry readDisk(String key) {
+        if (dir == null) return null;
+        File f = fileFor(key);
+        if (!f.isFile()) return null;
+        try (Reader r = new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8)) {
+            Entry e = gson.fromJson(r, Entry.class);
+            return (e != null && e.body != null) ? e : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable cache file " + f.getName(), e);
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+            return null;
+        }
+    }
+
+    /** Runs on diskExecutor. */
+    private void writeDisk(String key, Entry e) {
+        if (dir == null) return;
+        File f = fileFor(key);
+        File tmp = new File(f.getPath() + ".tmp"); // readers never see a half-written file
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(e, w);
+        } catch (Exception ex) {
+            Log.w(TAG, "Failed to write cache file", ex);
+            return;
+        }
+        if (!tmp.renameTo(f)) Log.w(TAG, "Failed to replace " + f.getName());
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= MAX_DISK_BYTES) return;
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified)); // oldest first
+        for (File f : files) {
+            if (total <= MAX_DISK_BYTES) break;
+            total -= f.length();
+            //noinspection ResultOfMethodCallIgnored
+            f.delete();
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(dir, sha1(key) + ".json");
+    }
+
+    private static String sha1(String s) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(String.format(Locale.ROOT, "%02x", b));
+            return sb.toString();
+        } catch (Exception e) {
+            return Integer.toHexString(s.hashCode());
+        }
+    }
+}
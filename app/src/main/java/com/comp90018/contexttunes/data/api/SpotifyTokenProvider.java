@@ -0,0 +1,222 @@
+package com.comp90018.contexttunes.data.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.comp90018.contexttunes.BuildConfig;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Spotify access tokens via the client-credentials flow (SPOTIFY_CLIENT_ID / SPOTIFY_CLIENT_SECRET).
+ *
+ * - The token and its expiry are cached in memory and SharedPreferences, so a cold start reuses a
+ *   still-valid token instead of fetching a new one
+ * - A refresh is scheduled REFRESH_AHEAD_MS before expiry on a background thread; searches keep
+ *   using the current token meanwhile and never wait for it
+ * - Concurrent refreshes (scheduled, warm-up, an expired token on the hot path, a 401) share one
+ *   in-flight request
+ * - Without client credentials, or while the token endpoint is unreachable, falls back to the
+ *   static SPOTIFY_ACCESS_TOKEN
+ *
+ * {@link #getToken()} may block on a refresh only when there is no usable token at all; call it
+ * from a worker thread.
+ */
+public final class SpotifyTokenProvider {
+
+    private static final String TAG = "SpotifyTokenProvider";
+    private static final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+    private static final String PREFS = "spotify_token";
+    private static final String KEY_TOKEN = "access_token";
+    private static final String KEY_EXPIRES_AT = "expires_at";
+    private static final String UNSET = "DEFAULT"; // local.defaults.properties placeholder
+
+    private static final long REFRESH_AHEAD_MS = 5 * 60 * 1000L;  // refresh 5 min before expiry
+    private static final long EXPIRY_SKEW_MS = 30 * 1000L;        // treat as expired slightly early
+    private static final long RETRY_DELAY_MS = 60 * 1000L;        // after a failed background refresh
+    private static final long BLOCKING_REFRESH_TIMEOUT_MS = 5000;
+
+    private static volatile SpotifyTokenProvider INSTANCE;
+
+    private final SharedPreferences prefs;
+    private final OkHttpClient httpClient = HttpClientProvider.shared();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
+    private final String clientId;
+    private final String clientSecret;
+    private final String staticToken;
+
+    @Nullable private String token;
+    private long expiresAt; // wall clock ms
+    @Nullable private CompletableFuture<String> inFlight;
+    @Nullable private ScheduledFuture<?> scheduledRefresh;
+
+    // Metrics
+    private long refreshCount = 0;
+    private long refreshFailures = 0;
+
+    private SpotifyTokenProvider(Context ctx, String clientId, String clientSecret, String staticToken) {
+        this.prefs = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.staticToken = staticToken;
+        this.token = prefs.getString(KEY_TOKEN, null);
+        this.expiresAt = prefs.getLong(KEY_EXPIRES_AT, 0);
+    }
+
+    public static SpotifyTokenProvider getInstance(@NonNull Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (SpotifyTokenProvider.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SpotifyTokenProvider(ctx.getApplicationContext(),
+                            BuildConfig.SPOTIFY_CLIENT_ID, BuildConfig.SPOTIFY_CLIENT_SECRET,
+                            BuildConfig.SPOTIFY_ACCESS_TOKEN);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Client credentials configured; otherwise every call returns the static token. */
+    public boolean hasClientCredentials() {
+        return isSet(clientId) && isSet(clientSecret);
+    }
+
+    /** Fetch (or schedule) a token ahead of the first search. Call once at app start. */
+    public synchronized void warmUp() {
+        if (!hasClientCredentials()) return;
+        if (isUsable()) {
+            scheduleRefresh(expiresAt - REFRESH_AHEAD_MS - System.currentTimeMillis());
+        } else {
+            refreshAsync();
+        }
+    }
+
+    /**
+     * A token for the Authorization header. Normally returns the cached token immediately; blocks
+     * (joining any in-flight refresh) only when the cached token is missing or expired.
+     */
+    @NonNull
+    public String getToken() {
+        if (!hasClientCredentials()) return staticToken;
+        CompletableFuture<String> pending;
+        synchronized (this) {
+            if (isUsable()) {
+                if (expiresAt - System.currentTimeMillis() < REFRESH_AHEAD_MS) refreshAsync();
+                return token;
+            }
+            pending = refreshAsync();
+        }
+        try {
+            return pending.get(BLOCKING_REFRESH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "Token refresh failed, using static token: " + e.getMessage());
+            return staticToken;
+        }
+    }
+
+    /**
+     * The server rejected this token (401). Drops it if it is still the cached one, so the next
+     * {@link #getToken()} fetches a new one.
+     * @return true if a retry with a fresh token makes sense
+     */
+    public synchronized boolean invalidate(@NonNull String rejected) {
+        if (!hasClientCredentials()) return false;
+        if (rejected.equals(token)) {
+            token = null;
+            expiresAt = 0;
+            prefs.edit().remove(KEY_TOKEN).remove(KEY_EXPIRES_AT).apply();
+        }
+        return true;
+    }
+
+    public synchronized long getRefreshCount() { return refreshCount; }
+    public synchronized long getRefreshFailureCount() { return refreshFailures; }
+
+    /** ms until the cached token expires, 0 when there is none. */
+    public synchronized long getExpiresInMs() {
+        return token == null ? 0 : Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    // ---------------- Refresh ----------------
+
+    private boolean isUsable() {
+        return token != null && System.currentTimeMillis() < expiresAt - EXPIRY_SKEW_MS;
+    }
+
+    /** Starts a refresh unless one is already running; every caller gets the same future. */
+    private synchronized CompletableFuture<String> refreshAsync() {
+        if (inFlight != null) return inFlight;
+        CompletableFuture<String> f = new CompletableFuture<>();
+        inFlight = f;
+        refresher.execute(() -> {
+            try {
+                f.complete(fetchToken());
+            } catch (Exception e) {
+                synchronized (this) { refreshFailures++; }
+                Log.w(TAG, "Client-credentials request failed: " + e.getMessage());
+                scheduleRefresh(RETRY_DELAY_MS);
+                f.completeExceptionally(e);
+            } finally {
+                synchronized (this) { inFlight = null; }
+            }
+        });
+        return f;
+    }
+
+    private String fetchToken() throws Exception {
+        Request request = new Request.Builder()
+                .url(TOKEN_URL)
+                .post(new FormBody.Builder()
+                        .add("grant_type", "client_credentials")
+                        .add("client_id", clientId)
+                        .add("client_secret", clientSecret)
+                        .build())
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String text = body != null ? body.string() : "";
+            if (!response.isSuccessful()) {
+                throw new Exception("HTTP " + response.code() + ": " + text);
+            }
+            JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+            String newToken = json.get("access_token").getAsString();
+            long expiresInMs = (json.has("expires_in") ? json.get("expires_in").getAsLong() : 3600) * 1000L;
+
+            synchronized (this) {
+                token = newToken;
+                expiresAt = System.currentTimeMillis() + expiresInMs;
+                refreshCount++;
+                prefs.edit().putString(KEY_TOKEN, token).putLong(KEY_EXPIRES_AT, expiresAt).apply();
+                scheduleRefresh(expiresInMs - REFRESH_AHEAD_MS);
+            }
+            Log.d(TAG, "New Spotify token, expires in " + expiresInMs / 1000 + " s (refreshes=" + refreshCount + ")");
+            return newToken;
+        }
+    }
+
+    private synchronized void scheduleRefresh(long delayMs) {
+        if (scheduledRefresh != null) scheduledRefresh.cancel(false);
+        scheduledRefresh = refresher.schedule(this::refreshAsync, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isSet(@Nullable String v) {
+        return v != null && !v.isEmpty() && !UNSET.equals(v);
+    }
+}
@@ -15,6 +15,8 @@ public class HomeStateViewModel extends ViewModel {
     private final MutableLiveData<Boolean> recommendationsGenerated = new MutableLiveData<>(false);
     private MutableLiveData<WeatherService.WeatherState> weatherState = new MutableLiveData<>();
     private final MutableLiveData<Long> weatherFetchedAt = new MutableLiveData<>(0L);
+    // Search string behind the playlists currently shown (for engagement feedback)
+    private final MutableLiveData<String> lastQuery = new MutableLiveData<>(null);
 
     private final MutableLiveData<com.comp90018.contexttunes.domain.Context> lastContext
             = new MutableLiveData<>(null);
@@ -46,6 +48,9 @@ public class HomeStateViewModel extends ViewModel {
     public LiveData<Long> getWeatherFetchedAt() { return weatherFetchedAt; }
     public void setWeatherFetchedAt(long tsMs) { weatherFetchedAt.setValue(tsMs); }
 
+    public LiveData<String> getLastQuery() { return lastQuery; }
+    public void setLastQuery(String query) { lastQuery.setValue(query); }
+
     public LiveData<com.comp90018.contexttunes.domain.Context> getLastContext() {
         return lastContext;
     }
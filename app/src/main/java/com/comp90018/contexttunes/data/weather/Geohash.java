@@ -0,0 +1,38 @@
+package com.comp90018.contexttunes.data.weather;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Standard base-32 geohash. Nearby points share a prefix, so a fixed-length hash is a grid cell
+ * key: precision 5 is roughly 4.9 km × 4.9 km, about the scale at which weather changes.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {}
+
+    @NonNull
+    public static String encode(double lat, double lon, int precision) {
+        double latMin = -90, latMax = 90, lonMin = -180, lonMax = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true; // bits alternate lon, lat, lon, ...
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lonMin + lonMax) / 2;
+                if (lon >= mid) { ch = (ch << 1) | 1; lonMin = mid; } else { ch <<= 1; lonMax = mid; }
+            } else {
+                double mid = (latMin + latMax) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latMin = mid; } else { ch <<= 1; latMax = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                sb.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,152 @@
+package com.comp90018.contexttunes.data.weather;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
+import com.comp90018.contexttunes.utils.LatencyHistogram;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last observed weather per geohash cell, persisted in SharedPreferences so it survives process
+ * death. Freshness (decided by the caller via {@link Entry#ageMs()}):
+ *   age < ttl         → serve, no network
+ *   age < maxStale    → serve, refresh in the background
+ *   older / missing   → network
+ *
+ * Metrics: fresh / stale hits, misses, hit rate and the age of every state served from here.
+ * Thread-safe.
+ */
+public class WeatherCache {
+
+    private static final String TAG = "WeatherCache";
+    private static final String PREFS_NAME = "weather_cache";
+    private static final String KEY_ENTRIES = "entries";
+
+    public static final long DEFAULT_TTL_MS = 30 * 60 * 1000L;           // 30 min fresh
+    public static final long DEFAULT_MAX_STALE_MS = 6 * 60 * 60 * 1000L; // served stale for up to 6 h
+    private static final int MAX_CELLS = 32;
+
+    /** Persisted shape of one cell. */
+    public static class Entry {
+        public final WeatherState state;
+        final long fetchedAt;
+
+        Entry(WeatherState state, long fetchedAt) {
+            this.state = state;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public long ageMs() { return System.currentTimeMillis() - fetchedAt; }
+    }
+
+    private static volatile WeatherCache INSTANCE;
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private final long ttlMs;
+    private final long maxStaleMs;
+
+    // Insertion-ordered so the least recently refreshed cell is evicted first
+    private final LinkedHashMap<String, Entry> cells = new LinkedHashMap<>();
+
+    private final AtomicLong freshHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final LatencyHistogram ageAtServe = new LatencyHistogram(128); // ms
+
+    private WeatherCache(@NonNull Context appContext, long ttlMs, long maxStaleMs) {
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.ttlMs = ttlMs;
+        this.maxStaleMs = maxStaleMs;
+        load();
+    }
+
+    public static WeatherCache getInstance(@NonNull Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (WeatherCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WeatherCache(ctx.getApplicationContext(), DEFAULT_TTL_MS, DEFAULT_MAX_STALE_MS);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Entry for this cell no older than maxStale, or null (counted as a miss). */
+    @Nullable
+    public synchronized Entry get(@NonNull String cell) {
+        Entry e = cells.get(cell);
+        if (e == null || e.state == null || e.ageMs() > maxStaleMs || e.ageMs() < 0) {
+            if (e != null) {
+                cells.remove(cell);
+                persist();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        if (isFresh(e)) freshHits.incrementAndGet(); else staleHits.incrementAndGet();
+        ageAtServe.record(e.ageMs());
+        return e;
+    }
+
+    public synchronized void put(@NonNull String cell, @NonNull WeatherState state) {
+        if (state == WeatherState.UNKNOWN) return; // failed lookups are not worth serving
+        cells.remove(cell); // re-insert at the tail
+        cells.put(cell, new Entry(state, System.currentTimeMillis()));
+        Iterator<String> it = cells.keySet().iterator();
+        while (cells.size() > MAX_CELLS && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        persist();
+    }
+
+    public boolean isFresh(@NonNull Entry e) { return e.ageMs() <= ttlMs; }
+
+    // ---------------- Metrics ----------------
+
+    public long getFreshHitCount() { return freshHits.get(); }
+    public long getStaleHitCount() { return staleHits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    /** Share of lookups answered from the cache (fresh or stale), 0 before the first lookup. */
+    public double getHitRate() {
+        long hits = freshHits.get() + staleHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /** Age of the served state at the given percentile (0–100), ms; -1 before the first hit. */
+    public long getAgeAtServeMs(double percentile) { return ageAtServe.percentile(percentile); }
+
+    // ---------------- Internals ----------------
+
+    private void load() {
+        try {
+            String json = prefs.getString(KEY_ENTRIES, null);
+            if (json == null) return;
+            Type t = new TypeToken<LinkedHashMap<String, Entry>>(){}.getType();
+            LinkedHashMap<String, Entry> stored = gson.fromJson(json, t);
+            if (stored != null) cells.putAll(stored);
+            Log.d(TAG, "Loaded weather for " + cells.size() + " cells");
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable weather cache", e);
+            prefs.edit().remove(KEY_ENTRIES).apply();
+        }
+    }
+
+    private void persist() {
+        prefs.edit().putString(KEY_ENTRIES, gson.toJson(cells)).apply();
+    }
+}
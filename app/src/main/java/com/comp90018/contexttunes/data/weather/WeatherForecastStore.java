@@ -0,0 +1,181 @@
+package com.comp90018.contexttunes.data.weather;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Forecast time series per geohash cell, so "weather now" can be answered locally for hours
+ * after a single forecast call.
+ *
+ * Each cell is two parallel primitive arrays (forecast timestamps in ms, ascending, and
+ * WeatherState ordinals) plus the time it was fetched: a 48 h forecast (16 slots) costs ~150
+ * bytes. A lookup picks the slot nearest to now, and misses when the series is older than
+ * MAX_AGE_MS, doesn't cover now, or the cell has no series (the user moved).
+ *
+ * Persisted in filesDir after each update. Thread-safe.
+ */
+public final class WeatherForecastStore {
+
+    private static final String TAG = "WeatherForecastStore";
+    private static final String FILE_NAME = "weather_forecast.bin";
+    private static final int FILE_VERSION = 1;
+
+    public static final long MAX_AGE_MS = 12 * 60 * 60 * 1000L;    // refetch twice a day at most
+    private static final long SLOT_TOLERANCE_MS = 3 * 60 * 60 * 1000L; // forecast step
+    private static final int MAX_CELLS = 8;
+
+    /** One cell's forecast; arrays are never modified after construction. */
+    public static final class Series {
+        final long fetchedAt;
+        final long[] times;   // ms, ascending
+        final byte[] states;  // WeatherState ordinals
+
+        public Series(long fetchedAt, @NonNull long[] times, @NonNull byte[] states) {
+            if (times.length != states.length) throw new IllegalArgumentException("length mismatch");
+            this.fetchedAt = fetchedAt;
+            this.times = times;
+            this.states = states;
+        }
+
+        public int size() { return times.length; }
+
+        /** State of the slot nearest to {@code now}, or null when no slot is within the step. */
+        @Nullable
+        public WeatherState at(long now) {
+            if (times.length == 0) return null;
+            int i = Arrays.binarySearch(times, now);
+            if (i < 0) {
+                int ins = -i - 1; // first slot after now
+                if (ins == times.length) i = ins - 1;
+                else if (ins == 0) i = 0;
+                else i = (now - times[ins - 1] <= times[ins] - now) ? ins - 1 : ins;
+            }
+            if (Math.abs(now - times[i]) > SLOT_TOLERANCE_MS) return null;
+            WeatherState s = WeatherState.values()[states[i]];
+            return s == WeatherState.UNKNOWN ? null : s;
+        }
+    }
+
+    private static volatile WeatherForecastStore INSTANCE;
+
+    private final File file;
+    // Insertion-ordered so the least recently fetched cell is evicted first
+    private final LinkedHashMap<String, Series> cells = new LinkedHashMap<>();
+
+    private final AtomicLong localAnswers = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private WeatherForecastStore(@NonNull File file) {
+        this.file = file;
+        load();
+    }
+
+    public static WeatherForecastStore getInstance(@NonNull Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (WeatherForecastStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WeatherForecastStore(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Forecast state for this cell at {@code now}, or null if a new forecast is needed. */
+    @Nullable
+    public synchronized WeatherState stateAt(@NonNull String cell, long now) {
+        Series s = cells.get(cell);
+        WeatherState state = null;
+        if (s != null && now >= s.fetchedAt && now - s.fetchedAt <= MAX_AGE_MS) {
+            state = s.at(now);
+        }
+        if (state == null) misses.incrementAndGet(); else localAnswers.incrementAndGet();
+        return state;
+    }
+
+    public synchronized void put(@NonNull String cell, @NonNull Series series) {
+        if (series.size() == 0) return;
+        cells.remove(cell); // re-insert at the tail
+        cells.put(cell, series);
+        Iterator<String> it = cells.keySet().iterator();
+        while (cells.size() > MAX_CELLS && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        save();
+    }
+
+    // ---------------- Metrics ----------------
+
+    /** Lookups answered from a stored forecast (no network). */
+    public long getLocalAnswerCount() { return localAnswers.get(); }
+    /** Lookups that needed a new forecast. */
+    public long getMissCount() { return misses.get(); }
+
+    // ---------------- Internals ----------------
+
+    private void load() {
+        if (!file.isFile()) return;
+        int stateCount = WeatherState.values().length;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) return;
+            int n = in.readInt();
+            for (int c = 0; c < n; c++) {
+                String cell = in.readUTF();
+                long fetchedAt = in.readLong();
+                int len = in.readInt();
+                long[] times = new long[len];
+                byte[] states = new byte[len];
+                for (int i = 0; i < len; i++) times[i] = in.readLong();
+                in.readFully(states);
+                for (byte b : states) {
+                    if (b < 0 || b >= stateCount) throw new IOException("bad state " + b);
+                }
+                cells.put(cell, new Series(fetchedAt, times, states));
+            }
+            Log.d(TAG, "Loaded forecasts for " + cells.size() + " cells");
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable forecasts", e);
+            cells.clear();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(cells.size());
+            for (Map.Entry<String, Series> e : cells.entrySet()) {
+                Series s = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(s.fetchedAt);
+                out.writeInt(s.size());
+                for (long t : s.times) out.writeLong(t);
+                out.write(s.states);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to save forecasts", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) Log.w(TAG, "Failed to replace " + file.getName());
+    }
+}
@@ -9,21 +9,32 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.comp90018.contexttunes.BuildConfig;
+import com.comp90018.contexttunes.data.api.HttpClientProvider;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Provides current weather conditions as simple states: SUNNY, CLOUDY, RAINY.
- * Uses OpenWeatherMap API for weather data.
+ * Uses the OpenWeatherMap forecast, kept per geohash cell in {@link WeatherForecastStore}, so
+ * "weather now" is answered locally until the forecast ages out or the user changes cell.
+ * Otherwise the last state in {@link WeatherCache} is returned immediately and refreshed in
+ * the background; the current-weather endpoint is only a fallback when the forecast fails.
  */
 public class WeatherService {
 
@@ -39,13 +50,26 @@ public class WeatherService {
     // Read API key from BuildConfig, or default to empty string
     private final String apiKey = getApiKey();
     private static final String BASE_URL = "https://api.openweathermap.org/data/2.5/weather";
+    private static final String FORECAST_URL = "https://api.openweathermap.org/data/2.5/forecast";
+    private static final int FORECAST_SLOTS = 16; // 3-hour steps → 48 h
+    private static final int CELL_PRECISION = 5; // geohash chars, ~4.9 km cells
 
     private final Context context;
     private final ExecutorService executor;
+    private final OkHttpClient httpClient;
+    private final WeatherCache cache;
+    private final WeatherForecastStore forecasts;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet(); // cells with a refresh queued
 
     public WeatherService(@NonNull Context context) {
         this.context = context.getApplicationContext();
         this.executor = Executors.newSingleThreadExecutor();
+        this.httpClient = HttpClientProvider.shared().newBuilder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .build();
+        this.cache = WeatherCache.getInstance(this.context);
+        this.forecasts = WeatherForecastStore.getInstance(this.context);
     }
 
     private String getApiKey() {
@@ -65,24 +89,82 @@ public class WeatherService {
 
     public void getCurrentWeather(@NonNull WeatherCallback callback) {
         executor.execute(() -> {
+            WeatherState weather;
+            Location location = null;
+            String staleCell = null; // set when a stale cached state is served
             try {
-                Location location = getLastKnownLocation();
+                location = getLastKnownLocation();
                 if (location == null) {
                     Log.w(TAG, "No location available, returning UNKNOWN weather");
-                    callback.onWeatherReceived(WeatherState.UNKNOWN);
-                    return;
+                    weather = WeatherState.UNKNOWN;
+                } else {
+                    String cell = Geohash.encode(location.getLatitude(), location.getLongitude(), CELL_PRECISION);
+                    WeatherState local = forecasts.stateAt(cell, System.currentTimeMillis());
+                    WeatherCache.Entry cached = local == null ? cache.get(cell) : null;
+                    if (local != null) {
+                        Log.d(TAG, "Weather for " + cell + " from forecast (" + forecasts.getLocalAnswerCount()
+                                + " local answers, " + forecasts.getMissCount() + " fetches)");
+                        weather = local;
+                    } else if (cached != null) {
+                        Log.d(TAG, "Weather for " + cell + " from cache (" + cached.ageMs() / 60000 + " min old, hit rate "
+                                + Math.round(cache.getHitRate() * 100) + "%)");
+                        weather = cached.state;
+                        if (!cache.isFresh(cached)) staleCell = cell;
+                    } else {
+                        weather = refresh(cell, location);
+                    }
                 }
-
-                WeatherState weather = fetchWeatherFromAPI(location.getLatitude(), location.getLongitude());
-                callback.onWeatherReceived(weather);
-
             } catch (Exception e) {
                 Log.e(TAG, "Error getting weather", e);
-                callback.onWeatherReceived(WeatherState.UNKNOWN);
+                weather = WeatherState.UNKNOWN;
+                staleCell = null;
             }
+
+            // Delivered exactly once, outside the try: a throwing callback must not trigger a second delivery
+            callback.onWeatherReceived(weather);
+            if (staleCell != null) refreshAsync(staleCell, location);
         });
     }
 
+    /** Stale-while-revalidate: queued behind the current request, at most one per cell. */
+    private void refreshAsync(String cell, Location location) {
+        if (!refreshing.add(cell)) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh(cell, location);
+                } finally {
+                    refreshing.remove(cell);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(cell); // shut down meanwhile
+            Log.d(TAG, "Skipping background refresh of " + cell + ": service shut down");
+        }
+    }
+
+    /**
+     * Fetches and stores the forecast for this cell and returns its slot for now; falls back to
+     * the current-weather endpoint if the forecast is unavailable or doesn't cover now.
+     */
+    @NonNull
+    private WeatherState refresh(String cell, Location location) {
+        double lat = location.getLatitude(), lon = location.getLongitude();
+        WeatherState weather = null;
+        WeatherForecastStore.Series series = fetchForecastFromAPI(lat, lon);
+        if (series != null) {
+            forecasts.put(cell, series);
+            weather = series.at(System.currentTimeMillis());
+        }
+        if (weather == null) weather = fetchWeatherFromAPI(lat, lon);
+        cache.put(cell, weather);
+        return weather;
+    }
+
+    /** The shared per-cell cache, for hit-rate / age metrics. */
+    @NonNull
+    public WeatherCache getCache() { return cache; }
+
     @Nullable
     private Location getLastKnownLocation() {
         try {
@@ -103,30 +185,21 @@ public class WeatherService {
 
     @NonNull
     private WeatherState fetchWeatherFromAPI(double lat, double lon) {
-        try {
-            String urlString = String.format("%s?lat=%f&lon=%f&appid=%s", BASE_URL, lat, lon, apiKey);
-            URL url = new URL(urlString);
-
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
+        HttpUrl url = HttpUrl.get(BASE_URL).newBuilder()
+                .addQueryParameter("lat", String.valueOf(lat))
+                .addQueryParameter("lon", String.valueOf(lon))
+                .addQueryParameter("appid", apiKey)
+                .build();
+        Request request = new Request.Builder().url(url).get().build();
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 200) {
-                Log.w(TAG, "Weather API returned code: " + responseCode);
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() != 200) {
+                Log.w(TAG, "Weather API returned code: " + response.code());
                 return WeatherState.UNKNOWN;
             }
-
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            reader.close();
-
-            return parseWeatherResponse(response.toString());
+            ResponseBody body = response.body();
+            if (body == null) return WeatherState.UNKNOWN;
+            return parseWeatherResponse(body.string());
 
         } catch (IOException | JSONException e) {
             Log.e(TAG, "Error fetching weather from API", e);
@@ -134,6 +207,56 @@ public class WeatherService {
         }
     }
 
+    @Nullable
+    private WeatherForecastStore.Series fetchForecastFromAPI(double lat, double lon) {
+        HttpUrl url = HttpUrl.get(FORECAST_URL).newBuilder()
+                .addQueryParameter("lat", String.valueOf(lat))
+                .addQueryParameter("lon", String.valueOf(lon))
+                .addQueryParameter("cnt", String.valueOf(FORECAST_SLOTS))
+                .addQueryParameter("appid", apiKey)
+                .build();
+        Request request = new Request.Builder().url(url).get().build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (response.code() != 200) {
+                Log.w(TAG, "Forecast API returned code: " + response.code());
+                return null;
+            }
+            ResponseBody body = response.body();
+            if (body == null) return null;
+            return parseForecastResponse(body.string());
+
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Error fetching forecast from API", e);
+            return null;
+        }
+    }
+
+    /** {"list":[{"dt":seconds,"weather":[{"main","description"}]}, ...]} → ascending series. */
+    @Nullable
+    private WeatherForecastStore.Series parseForecastResponse(String jsonResponse) throws JSONException {
+        JSONArray list = new JSONObject(jsonResponse).optJSONArray("list");
+        if (list == null || list.length() == 0) return null;
+
+        int n = list.length();
+        long[] times = new long[n];
+        byte[] states = new byte[n];
+        for (int i = 0; i < n; i++) {
+            JSONObject slot = list.getJSONObject(i);
+            times[i] = slot.getLong("dt") * 1000L;
+            JSONArray weather = slot.optJSONArray("weather");
+            WeatherState state = WeatherState.UNKNOWN;
+            if (weather != null && weather.length() > 0) {
+                JSONObject w = weather.getJSONObject(0);
+                state = mapCondition(w.optString("main", "").toLowerCase(), w.optString("description", "").toLowerCase());
+            }
+            states[i] = (byte) state.ordinal();
+            if (i > 0 && times[i] <= times[i - 1]) return null; // not the shape we expect
+        }
+        Log.d(TAG, "Forecast: " + n + " slots");
+        return new WeatherForecastStore.Series(System.currentTimeMillis(), times, states);
+    }
+
     @NonNull
     private WeatherState parseWeatherResponse(String jsonResponse) throws JSONException {
         JSONObject json = new JSONObject(jsonResponse);
@@ -146,9 +269,14 @@ public class WeatherService {
         String main = weather.getString("main").toLowerCase();
         String description = weather.optString("description", "").toLowerCase();
 
-        // Map weather conditions to simple states
         Log.d(TAG, "Weather main: " + main);
         Log.d(TAG, "Weather description: " + description);
+        return mapCondition(main, description);
+    }
+
+    /** Maps OpenWeatherMap's lower-cased main / description to a simple state. */
+    @NonNull
+    private static WeatherState mapCondition(String main, String description) {
         switch (main) {
             case "clear":
                 return WeatherState.SUNNY;
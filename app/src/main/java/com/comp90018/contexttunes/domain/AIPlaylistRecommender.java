@@ -5,15 +5,29 @@ import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.comp90018.contexttunes.BuildConfig;
+import com.comp90018.contexttunes.data.api.HttpClientProvider;
+import com.comp90018.contexttunes.utils.CircuitBreaker;
+import com.comp90018.contexttunes.utils.LatencyHistogram;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -22,10 +36,12 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSource;
 
 /**
- * AI component that converts a sensed Context into a single Spotify search string
- * plus a short reason. No playlist selection is done here.
+ * AI component that converts a sensed Context into a ranked list of Spotify search strings,
+ * each with a short reason. No playlist selection is done here. The top candidate is the
+ * recommendation; the rest are queued per context so Regenerate can use them without another call.
  * This class handles the complete flow of:
  * 1. Formatting context data into a detailed prompt
  * 2. Calling OpenAI API with proper error handling
@@ -37,6 +53,9 @@ import okhttp3.Response;
  *   recommender.getRecommendations(context, new AIPlaylistRecommender.AICallback() {
  *   @Override public void onSuccess(SearchRecommendation rec) { // use rec.searchQuery}
  *   @Override public void onError(Exception e) { // fallback }
+ *
+ * With streaming enabled, pass an {@link AIStreamCallback} to be told the search_query
+ * as soon as it has been generated, before the reason (and the rest of the completion) arrives.
  */
 
 public class AIPlaylistRecommender {
@@ -45,32 +64,255 @@ public class AIPlaylistRecommender {
     private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
     private static final String MODEL = "gpt-4o-mini";
     private static final int TIMEOUT_SECONDS = 10;
+    private static final int CANDIDATE_COUNT = 4; // queries per completion (1 + alternatives)
+
+    // Adaptive deadline: a multiple of recent p95, clamped, once we have enough samples
+    private static final int LATENCY_WINDOW = 50;
+    private static final int MIN_LATENCY_SAMPLES = 5;
+    private static final double DEADLINE_P95_MULTIPLIER = 2.0;
+    private static final long MIN_DEADLINE_MS = 2_500L;
+    private static final long MAX_DEADLINE_MS = TIMEOUT_SECONDS * 1000L;
+
+    // Circuit breaker: skip the network after repeated failures, probe again after a cool-down
+    private static final int BREAKER_FAILURE_THRESHOLD = 3;
+    private static final long BREAKER_OPEN_MS = 60_000L;
+
+    // API health is process-wide, not per recommender instance
+    private static final LatencyHistogram LATENCY = new LatencyHistogram(LATENCY_WINDOW);
+    private static final CircuitBreaker BREAKER =
+            new CircuitBreaker("OpenAI", BREAKER_FAILURE_THRESHOLD, BREAKER_OPEN_MS);
+    private static final String SSE_DATA_PREFIX = "data:";
+    private static final String SSE_DONE = "[DONE]";
+    // Matches only once the closing quote has streamed in, i.e. the value is complete
+    private static final Pattern SEARCH_QUERY_FIELD =
+            Pattern.compile("\"search_query\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
 
     private final OkHttpClient httpClient;
     private final Gson gson;
     private final Handler mainHandler;
+    private final RecommendationCache cache;
+
+    private volatile boolean streamingEnabled = false;
+    @Nullable private volatile CompletionListener completionListener;
+
+    // Single-flight: callbacks waiting on the one in-flight call for each normalized context
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    // Unused lower-ranked candidates per normalized context, served to Regenerate
+    private final Map<String, Deque<SearchRecommendation>> pendingAlternatives = new HashMap<>();
+    private final AtomicLong networkCalls = new AtomicLong();
+    private final AtomicLong collapsedCalls = new AtomicLong();
+    private final UsageStats usageStats = new UsageStats();
 
     public interface AICallback {
         void onSuccess(@NonNull SearchRecommendation recommendation);
         void onError(@NonNull Exception e);
     }
 
+    /**
+     * Told once per completion actually received from the API, with the context it was sent
+     * for; never for cache hits or for callers that joined an in-flight call. Runs on an
+     * OkHttp thread.
+     */
+    public interface CompletionListener {
+        void onCompletion(@NonNull Context context, @NonNull SearchRecommendation recommendation);
+    }
+
+    /**
+     * Streaming-aware callback. onSearchQueryReady fires at most once, as soon as the
+     * search_query field is complete; onSuccess/onError still follow as usual.
+     * On cache hits (or when streaming is off) onSearchQueryReady may not fire at all.
+     */
+    public interface AIStreamCallback extends AICallback {
+        void onSearchQueryReady(@NonNull String searchQuery);
+    }
+
+    /**
+     * Running totals from the {@code usage} block of each completion, plus wall-clock latency.
+     * Cost uses gpt-4o-mini list prices (USD per 1M tokens); cached prompt tokens bill at half.
+     */
+    public static class UsageStats {
+        private static final double USD_PER_M_INPUT = 0.15;
+        private static final double USD_PER_M_CACHED_INPUT = 0.075;
+        private static final double USD_PER_M_OUTPUT = 0.60;
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong cachedTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private volatile long lastLatencyMs = 0L;
+        private volatile double lastCostUsd = 0.0;
+
+        void record(@Nullable Usage usage, long sentAtNanos) {
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAtNanos);
+            calls.incrementAndGet();
+            totalLatencyMs.addAndGet(latencyMs);
+            lastLatencyMs = latencyMs;
+            if (usage == null) {
+                Log.d(TAG, "OpenAI call took " + latencyMs + " ms (no usage block)");
+                return;
+            }
+            int cached = usage.promptDetails != null ? usage.promptDetails.cachedTokens : 0;
+            promptTokens.addAndGet(usage.promptTokens);
+            cachedTokens.addAndGet(cached);
+            completionTokens.addAndGet(usage.completionTokens);
+            lastCostUsd = cost(usage.promptTokens, cached, usage.completionTokens);
+            Log.d(TAG, "OpenAI call took " + latencyMs + " ms; prompt=" + usage.promptTokens
+                    + " (cached " + cached + "), completion=" + usage.completionTokens
+                    + String.format(java.util.Locale.ROOT, ", ~$%.6f", lastCostUsd));
+        }
+
+        private static double cost(long prompt, long cached, long completion) {
+            return ((prompt - cached) * USD_PER_M_INPUT
+                    + cached * USD_PER_M_CACHED_INPUT
+                    + completion * USD_PER_M_OUTPUT) / 1_000_000.0;
+        }
+
+        public long getCallCount() { return calls.get(); }
+        public long getPromptTokens() { return promptTokens.get(); }
+        public long getCachedPromptTokens() { return cachedTokens.get(); }
+        public long getCompletionTokens() { return completionTokens.get(); }
+        public long getLastLatencyMs() { return lastLatencyMs; }
+        public double getLastCostUsd() { return lastCostUsd; }
+
+        public long getAverageLatencyMs() {
+            long n = calls.get();
+            return n == 0 ? 0 : totalLatencyMs.get() / n;
+        }
+
+        /** Share of prompt tokens served from the provider's prefix cache (0 below its 1024-token minimum). */
+        public double getCachedTokenRatio() {
+            long p = promptTokens.get();
+            return p == 0 ? 0.0 : (double) cachedTokens.get() / p;
+        }
+
+        public double getTotalCostUsd() {
+            return cost(promptTokens.get(), cachedTokens.get(), completionTokens.get());
+        }
+    }
+
+    /** One network call and everyone waiting on it. */
+    private static class Flight {
+        final List<AICallback> waiters = new ArrayList<>();
+        @Nullable String earlyQuery; // set once search_query has streamed in
+    }
+
+    /** Memory-only cache; results are lost when this instance goes away. */
     public AIPlaylistRecommender() {
-        this.httpClient = new OkHttpClient.Builder()
+        this(new RecommendationCache(null, RecommendationCache.DEFAULT_TTL_MS,
+                RecommendationCache.DEFAULT_MEMORY_ENTRIES, 0));
+    }
+
+    /** Uses the process-wide cache (memory + disk) so results survive navigation and restarts. */
+    public AIPlaylistRecommender(@NonNull android.content.Context appContext) {
+        this(RecommendationCache.getInstance(appContext));
+    }
+
+    private AIPlaylistRecommender(@NonNull RecommendationCache cache) {
+        // Derived from the shared client → same connection pool, dispatcher and telemetry
+        this.httpClient = HttpClientProvider.shared().newBuilder()
                 .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
                 .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
                 .build();
         this.gson = new Gson();
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.cache = cache;
+    }
+
+    @NonNull
+    public RecommendationCache getCache() { return cache; }
+
+    public void setCompletionListener(@Nullable CompletionListener listener) { this.completionListener = listener; }
+
+    /** Use {@code stream: true} and parse server-sent deltas instead of waiting for the whole completion. */
+    public void setStreamingEnabled(boolean enabled) { this.streamingEnabled = enabled; }
+
+    public boolean isStreamingEnabled() { return streamingEnabled; }
+
+    /** Token usage, prompt-cache effectiveness and latency of completed OpenAI calls. */
+    @NonNull
+    public UsageStats getUsageStats() { return usageStats; }
+
+    /** Breaker state; anything other than CLOSED means AI answers currently come from fallbacks. */
+    @NonNull
+    public CircuitBreaker.State getBreakerState() { return BREAKER.getState(); }
+
+    public boolean isInFallbackMode() { return BREAKER.getState() == CircuitBreaker.State.OPEN; }
+
+    /**
+     * Per-call deadline derived from recent latencies (p95 × multiplier), falling back to the
+     * fixed timeout until enough samples exist. Calls cut off by their deadline count as a
+     * sample at the deadline (a censored lower bound); otherwise only the calls that beat the
+     * deadline would feed back, and it would keep shrinking towards MIN_DEADLINE_MS.
+     */
+    public long currentDeadlineMs() {
+        if (LATENCY.size() < MIN_LATENCY_SAMPLES) return MAX_DEADLINE_MS;
+        long p95 = LATENCY.percentile(95);
+        long deadline = (long) (p95 * DEADLINE_P95_MULTIPLIER);
+        return Math.max(MIN_DEADLINE_MS, Math.min(MAX_DEADLINE_MS, deadline));
     }
 
+    /** Number of OpenAI calls actually sent. */
+    public long getNetworkCallCount() { return networkCalls.get(); }
+
+    /** Number of requests that piggy-backed on an identical in-flight call instead of sending their own. */
+    public long getCollapsedCallCount() { return collapsedCalls.get(); }
+
     /**
      * Request a single Spotify search string + reason from the AI based on the provided Context.
+     * Equivalent contexts seen within the cache TTL are answered locally without a network call,
+     * and concurrent requests for an equivalent context share one call and one result.
      */
     public void getSearchRecommendation(@NonNull Context context, @NonNull AICallback callback) {
+        getSearchRecommendation(context, callback, false);
+    }
 
-        String prompt = buildDetailedPrompt(context);
-        String requestJson = buildRequestJson(prompt);
+    /**
+     * As above; with {@code bypassCache} the cached answer is skipped and a fresh completion is
+     * requested (and cached), so Regenerate gets new candidates instead of the same query again.
+     */
+    public void getSearchRecommendation(@NonNull Context context, @NonNull AICallback callback,
+                                        boolean bypassCache) {
+
+        SearchRecommendation cached = bypassCache ? null : cache.get(context);
+        if (cached != null) {
+            Log.d(TAG, "Cache hit for " + context.normalizedKey()
+                    + " (hits=" + cache.getHitCount() + ", misses=" + cache.getMissCount() + ")");
+            // Alternatives are queued once per completion, not again on every hit: refilling here
+            // would make Regenerate cycle the same candidates forever
+            mainHandler.post(() -> callback.onSuccess(cached));
+            return;
+        }
+
+        final String key = context.normalizedKey();
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(key);
+            if (flight != null) {
+                flight.waiters.add(callback);
+                long collapsed = collapsedCalls.incrementAndGet();
+                Log.d(TAG, "Joined in-flight request for " + key + " (collapsed=" + collapsed + ")");
+                // Late joiner on a stream that already produced its query: tell it right away
+                if (flight.earlyQuery != null && callback instanceof AIStreamCallback) {
+                    String q = flight.earlyQuery;
+                    mainHandler.post(() -> ((AIStreamCallback) callback).onSearchQueryReady(q));
+                }
+                return;
+            }
+            if (!BREAKER.allowRequest()) {
+                Log.w(TAG, "Circuit open; skipping OpenAI call for " + key);
+                mainHandler.post(() -> callback.onError(new IOException("OpenAI circuit open")));
+                return;
+            }
+            flight = new Flight();
+            flight.waiters.add(callback);
+            inFlight.put(key, flight);
+        }
+        networkCalls.incrementAndGet();
+
+        final boolean stream = streamingEnabled;
+        String prompt = buildContextMessage(context);
+        String requestJson = buildRequestJson(prompt, stream);
+        final long sentAt = System.nanoTime();
 
         RequestBody body = RequestBody.create(
                 requestJson,
@@ -84,13 +326,18 @@ public class AIPlaylistRecommender {
                 .addHeader("Content-Type", "application/json")
                 .build();
 
-        Log.d(TAG, "Sending OpenAI request with prompt: " + prompt);
+        long deadlineMs = currentDeadlineMs();
+        Log.d(TAG, "Sending OpenAI request with context: " + prompt + " (deadline " + deadlineMs + " ms)");
 
-        httpClient.newCall(request).enqueue(new Callback() {
+        Call call = httpClient.newCall(request);
+        call.timeout().timeout(deadlineMs, TimeUnit.MILLISECONDS); // whole call, incl. streaming body
+        call.enqueue(new Callback() {
             @Override
             public void onFailure(@NonNull Call call, @NonNull IOException e) {
                 Log.e(TAG, "OpenAI call failed", e);
-                mainHandler.post(() -> callback.onError(e));
+                BREAKER.onFailure();
+                recordIfTimedOut(e, deadlineMs);
+                deliverError(key, e);
             }
 
             @Override
@@ -99,13 +346,23 @@ public class AIPlaylistRecommender {
                     if (!response.isSuccessful()) {
                         throw new IOException("API returned error: " + response.code() + " " + response.message());
                     }
-                    String responseBody = response.body().string();
-                    SearchRecommendation rec = parseResponse(responseBody);
-                    mainHandler.post(() -> callback.onSuccess(rec));
+                    SearchRecommendation rec = stream
+                            ? readStreamedResponse(key, response.body().source(), sentAt)
+                            : parseResponse(response.body().string(), sentAt);
+                    BREAKER.onSuccess();
+                    LATENCY.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt));
+                    cache.put(context, rec); // before releasing waiters, so late callers hit the cache
+                    offerAlternatives(key, rec);
+                    deliverSuccess(key, rec);
+                    CompletionListener listener = completionListener;
+                    if (listener != null) listener.onCompletion(context, rec);
 
                 } catch (Exception e) {
                     Log.e(TAG, "Failed to parse AI response", e);
-                    mainHandler.post(() -> callback.onError(e));
+                    // HTTP errors and timeouts mean the API is unhealthy; a bad payload does not
+                    if (e instanceof IOException) BREAKER.onFailure(); else BREAKER.onSuccess();
+                    recordIfTimedOut(e, deadlineMs); // a streamed body can hit the deadline too
+                    deliverError(key, e);
                 } finally {
                     response.close();
                 }
@@ -113,86 +370,169 @@ public class AIPlaylistRecommender {
         });
     }
 
+    /** Timeouts (call deadline or socket read) enter the latency window at the deadline value. */
+    private static void recordIfTimedOut(@NonNull Exception e, long deadlineMs) {
+        if (e instanceof InterruptedIOException) LATENCY.record(deadlineMs);
+    }
+
+    /**
+     * Next unused candidate query for this context from an earlier completion, or null.
+     * Lets Regenerate switch to a different search string instantly, with no AI round trip.
+     * Once this returns null, Regenerate should ask for a fresh completion (bypassCache).
+     */
+    @Nullable
+    public SearchRecommendation pollAlternative(@NonNull Context context) {
+        synchronized (pendingAlternatives) {
+            Deque<SearchRecommendation> queue = pendingAlternatives.get(context.normalizedKey());
+            SearchRecommendation next = queue != null ? queue.pollFirst() : null;
+            if (queue != null && queue.isEmpty()) pendingAlternatives.remove(context.normalizedKey());
+            return next;
+        }
+    }
+
+    /** Queue a recommendation's alternatives, unless this context still has unused ones. */
+    private void offerAlternatives(@NonNull String key, @NonNull SearchRecommendation rec) {
+        List<SearchRecommendation> alts = rec.getAlternatives();
+        if (alts.isEmpty()) return;
+        synchronized (pendingAlternatives) {
+            Deque<SearchRecommendation> queue = pendingAlternatives.get(key);
+            if (queue != null && !queue.isEmpty()) return;
+            pendingAlternatives.put(key, new ArrayDeque<>(alts));
+        }
+    }
+
+    // ---------------- Single-flight delivery ----------------
+
+    @NonNull
+    private List<AICallback> takeWaiters(@NonNull String key) {
+        synchronized (inFlight) {
+            Flight flight = inFlight.remove(key);
+            return flight != null ? flight.waiters : new ArrayList<>();
+        }
+    }
+
+    private void deliverEarlyQuery(@NonNull String key, @NonNull String query) {
+        List<AICallback> waiters;
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(key);
+            if (flight == null) return;
+            flight.earlyQuery = query;
+            waiters = new ArrayList<>(flight.waiters);
+        }
+        mainHandler.post(() -> {
+            for (AICallback cb : waiters) {
+                if (cb instanceof AIStreamCallback) ((AIStreamCallback) cb).onSearchQueryReady(query);
+            }
+        });
+    }
+
+    private void deliverSuccess(@NonNull String key, @NonNull SearchRecommendation rec) {
+        List<AICallback> waiters = takeWaiters(key);
+        mainHandler.post(() -> {
+            for (AICallback cb : waiters) cb.onSuccess(rec);
+        });
+    }
+
+    private void deliverError(@NonNull String key, @NonNull Exception e) {
+        List<AICallback> waiters = takeWaiters(key);
+        mainHandler.post(() -> {
+            for (AICallback cb : waiters) cb.onError(e);
+        });
+    }
+
     // ---------------- Prompt & Request ----------------
     // Prompt engineering here
     // Go over this carefully to ensure high-quality AI responses
+    //
+    // Everything static lives in SYSTEM_PROMPT and only the short context line (user message)
+    // changes between calls. The whole prompt is ~300 tokens, well below OpenAI's 1024-token
+    // minimum for prompt caching, so cached_tokens stays 0 and every call bills full input
+    // price. Padding the prefix up to the threshold would cost more than it saves; the savings
+    // here come from the compact context line. UsageStats would show it if caching ever applies.
+    private static final String SYSTEM_PROMPT =
+            // === ROLE DEFINITION ===
+            "You are an AI music recommendation expert for ContextTunes, "
+            + "a mobile app that suggests playlists based on real-time context from smartphone sensors.\n\n"
+            + "You turn mobile context into a ranked list of " + CANDIDATE_COUNT + " Spotify search queries.\n"
+            + "You ONLY output concise search strings that would yield good playlists.\n"
+            + "Each comes with a short reason explaining why it fits the context.\n\n"
+            // === INPUT FORMAT ===
+            + "=== INPUT ===\n"
+            + "The user message is one line of key=value pairs separated by \"; \":\n"
+            + "act (activity), light, time (time of day), wx (weather), place (tagged place) or "
+            + "near (nearby place types), img (camera labels). \"-\" means unknown.\n\n"
+            // === REASONING GUIDELINES ===
+            + "=== GUIDELINES ===\n"
+            + "- Provide a concise natural-language search string (3–7 words is typical), e.g., "
+            + "\"gym 140 bpm\", \"rainy night lo-fi\", \"upbeat indie morning\", \"instrumental focus\".\n"
+            + "- Consider importance: place/camera > activity > time > weather > light.\n"
+            + "- The reason must be short (<= 100 chars) and reference specific context.\n"
+            + "- Rank best first. Candidates must be clearly different (genre, mood or tempo), not rewordings.\n\n"
+            // === OUTPUT FORMAT ===
+            + "=== OUTPUT FORMAT (JSON only) ===\n"
+            + "{\n"
+            + "  \"candidates\": [\n"
+            + "    { \"search_query\": \"<string to search on Spotify>\", \"reason\": \"<short explanation (<=100 chars)>\" }\n"
+            + "  ]\n"
+            + "}\n"
+            + "You output only valid JSON per this schema. No other text. No markdown.\n";
+
+    /** The only per-request part of the prompt: a compact one-line context. */
     @NonNull
-    private String buildDetailedPrompt(@NonNull Context context) {
-        StringBuilder prompt = new StringBuilder();
-
-        // === ROLE DEFINITION ===
-        prompt.append("You are an AI music recommendation expert for ContextTunes, ");
-        prompt.append("a mobile app that suggests playlists based on real-time context from smartphone sensors.\n\n");
-        prompt.append("You turn mobile context into a single Spotify search query.\n");
-        prompt.append("You ONLY output a concise search string that would yield good playlists.\n");
-        prompt.append("Also include a short reason explaining why this search string fits the context.\n\n");
-
-        // Context
-        prompt.append("=== CONTEXT ===\n");
-        prompt.append("Activity: ").append(nullSafe(context.activity)).append("\n");
-        prompt.append("Light: ").append(context.lightLevel != null ? context.lightLevel.name() : "UNKNOWN").append("\n");
-        prompt.append("Time of day: ").append(nullSafe(context.timeOfDay)).append("\n");
-        prompt.append("Weather: ").append(context.weather != null ? context.weather.name() : "UNKNOWN").append("\n");
+    private String buildContextMessage(@NonNull Context context) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("act=").append(nullSafe(context.activity));
+        sb.append("; light=").append(context.lightLevel != null ? context.lightLevel.name() : "-");
+        sb.append("; time=").append(nullSafe(context.timeOfDay));
+        sb.append("; wx=").append(context.weather != null ? context.weather.name() : "-");
         if (context.placeTag != null) {
-            prompt.append("Place tag: ").append(context.placeTag).append("\n");
+            sb.append("; place=").append(context.placeTag);
         } else if (context.nearbyPlaceTypes != null && !context.nearbyPlaceTypes.isEmpty()) {
-            prompt.append("Nearby places: ").append(String.join(", ", context.nearbyPlaceTypes)).append("\n");
+            sb.append("; near=").append(String.join(",", context.nearbyPlaceTypes));
         } else {
-            prompt.append("Location: unknown\n");
+            sb.append("; place=-");
         }
         // Image labels (top-N strings)
         if (context.imageLabels != null && !context.imageLabels.isEmpty()) {
-            prompt.append("Image labels: ")
-                    .append(String.join(", ", context.imageLabels))
-                    .append("\n");
+            sb.append("; img=").append(String.join(",", context.imageLabels));
         } else {
-            prompt.append("Image labels: none\n");
+            sb.append("; img=-");
         }
-        prompt.append("\n");
-
-        // === REASONING GUIDELINES ===
-        prompt.append("=== GUIDELINES ===\n");
-        prompt.append("- Provide a concise natural-language search string (3–7 words is typical), e.g., ")
-                .append("\"gym 140 bpm\", \"rainy night lo-fi\", \"upbeat indie morning\", \"instrumental focus\".\n")
-                .append("- Consider importance: place/camera > activity > time > weather > light.\n")
-                .append("- The reason must be short (<= 100 chars) and reference specific context.\n\n");
-
-        // === OUTPUT FORMAT ===
-        prompt.append("=== OUTPUT FORMAT (JSON only) ===\n")
-                .append("{\n")
-                .append("  \"search_query\": \"<string to search on Spotify>\",\n")
-                .append("  \"reason\": \"<short explanation (<=100 chars)>\"\n")
-                .append("}\n")
-                .append("No other text. No markdown.\n");
-
-        return prompt.toString();
+        return sb.toString();
     }
 
     @NonNull
-    private String nullSafe(String s) { return s == null ? "unknown" : s; }
+    private String nullSafe(String s) { return s == null ? "-" : s; }
 
     /**
      * Build the OpenAI API request JSON with optimal parameters.
+     * Messages are ordered static → volatile so the cacheable prefix is as long as possible.
      */
     @NonNull
-    private String buildRequestJson(@NonNull String prompt) {
+    private String buildRequestJson(@NonNull String contextMessage, boolean stream) {
         JsonObject request = new JsonObject();
         request.addProperty("model", MODEL);
+        if (stream) {
+            request.addProperty("stream", true);
+            // Ask for the usage block in the final chunk so streamed calls are metered too
+            JsonObject streamOptions = new JsonObject();
+            streamOptions.addProperty("include_usage", true);
+            request.add("stream_options", streamOptions);
+        }
         request.addProperty("temperature", 0.9);  // Some creativity, but not too random
-        request.addProperty("max_tokens", 150);
+        request.addProperty("max_tokens", 60 + 60 * CANDIDATE_COUNT); // ~60 tokens per candidate
         request.addProperty("top_p", 0.9);        // Nucleus sampling for quality
 
         JsonArray messages = new JsonArray();
 
         JsonObject systemMessage = new JsonObject();
         systemMessage.addProperty("role", "system");
-        systemMessage.addProperty("content",
-                "You output only valid JSON per the user's schema. No markdown, no prose.");
+        systemMessage.addProperty("content", SYSTEM_PROMPT);
         messages.add(systemMessage);
 
         JsonObject userMessage = new JsonObject();
         userMessage.addProperty("role", "user");
-        userMessage.addProperty("content", prompt);
+        userMessage.addProperty("content", contextMessage);
         messages.add(userMessage);
 
         request.add("messages", messages);
@@ -207,36 +547,118 @@ public class AIPlaylistRecommender {
      * Handles various error cases gracefully.
      */
     @NonNull
-    private SearchRecommendation parseResponse(@NonNull String responseJson) throws Exception {
+    private SearchRecommendation parseResponse(@NonNull String responseJson, long sentAtNanos) throws Exception {
         OpenAIResponse apiResponse = gson.fromJson(responseJson, OpenAIResponse.class);
+        usageStats.record(apiResponse.usage, sentAtNanos);
 
         if (apiResponse.choices == null || apiResponse.choices.isEmpty() || apiResponse.choices.get(0).message == null) {
             throw new Exception("No choices in API response");
         }
 
-        String content = apiResponse.choices.get(0).message.content.trim();
-        Log.d(TAG, "Raw AI response content: " + content);
+        String content = apiResponse.choices.get(0).message.content;
         if (content == null) throw new Exception("Empty content from API");
+        return parseContent(content.trim());
+    }
+
+    /**
+     * Read a {@code stream: true} completion line by line (server-sent events), accumulating the
+     * content deltas. As soon as the search_query value is complete it is pushed to streaming
+     * callers; the full payload (with reason) is parsed once the stream ends.
+     */
+    @NonNull
+    private SearchRecommendation readStreamedResponse(@NonNull String key, @NonNull BufferedSource source,
+                                                      long sentAtNanos) throws Exception {
+        StringBuilder content = new StringBuilder();
+        String earlyQuery = null;
+        Usage usage = null;
+
+        for (String line; (line = source.readUtf8Line()) != null; ) {
+            if (!line.startsWith(SSE_DATA_PREFIX)) continue; // blank separators, comments
+            String data = line.substring(SSE_DATA_PREFIX.length()).trim();
+            if (SSE_DONE.equals(data)) break;
+
+            StreamChunk chunk = gson.fromJson(data, StreamChunk.class);
+            if (chunk != null && chunk.usage != null) usage = chunk.usage; // last chunk, no choices
+            if (chunk == null || chunk.choices == null || chunk.choices.isEmpty()) continue;
+            StreamChunk.Delta delta = chunk.choices.get(0).delta;
+            if (delta == null || delta.content == null) continue;
+            content.append(delta.content);
+
+            if (earlyQuery == null) {
+                Matcher m = SEARCH_QUERY_FIELD.matcher(content);
+                if (m.find()) {
+                    String q = gson.fromJson("\"" + m.group(1) + "\"", String.class).trim();
+                    if (!q.isEmpty()) {
+                        earlyQuery = q;
+                        Log.d(TAG, "Streamed search_query ready: " + q);
+                        deliverEarlyQuery(key, q);
+                    }
+                }
+            }
+        }
+
+        usageStats.record(usage, sentAtNanos);
+        try {
+            return parseContent(content.toString().trim());
+        } catch (Exception e) {
+            // The query already went out; don't fail the whole request over a truncated reason
+            if (earlyQuery != null) return new SearchRecommendation(earlyQuery, "");
+            throw e;
+        }
+    }
+
+    /** Parse the assistant message content (the JSON payload we asked for). */
+    @NonNull
+    private SearchRecommendation parseContent(@NonNull String content) throws Exception {
+        Log.d(TAG, "Raw AI response content: " + content);
+        if (content.isEmpty()) throw new Exception("Empty content from API");
         // Remove markdown code blocks if present
         content = content.replaceAll("^```json\\s*", "").replaceAll("\\s*```$", "");
 
         AIPayload payload = gson.fromJson(content, AIPayload.class);
-        if (payload == null || payload.searchQuery == null || payload.searchQuery.trim().isEmpty()) {
-            throw new Exception("Missing search_query");
+        if (payload == null) throw new Exception("Missing search_query");
+
+        // Ranked list; tolerate the single-object shape as well
+        List<SearchRecommendation> ranked = new ArrayList<>();
+        if (payload.candidates != null) {
+            for (AIPayload c : payload.candidates) {
+                if (c == null || c.searchQuery == null || c.searchQuery.trim().isEmpty()) continue;
+                ranked.add(new SearchRecommendation(c.searchQuery.trim(), c.reason == null ? "" : c.reason.trim()));
+            }
+        } else if (payload.searchQuery != null && !payload.searchQuery.trim().isEmpty()) {
+            ranked.add(new SearchRecommendation(payload.searchQuery.trim(), payload.reason == null ? "" : payload.reason.trim()));
         }
-        String reason = payload.reason == null ? "" : payload.reason.trim();
-        return new SearchRecommendation(payload.searchQuery.trim(), reason);
+        if (ranked.isEmpty()) throw new Exception("Missing search_query");
+
+        SearchRecommendation top = ranked.get(0);
+        return new SearchRecommendation(top.searchQuery, top.reason, new ArrayList<>(ranked.subList(1, ranked.size())));
     }
 
     // ---------------- DTOs ----------------
 
     private static class OpenAIResponse {
         @SerializedName("choices") java.util.List<Choice> choices;
+        @SerializedName("usage") Usage usage;
         static class Choice { @SerializedName("message") Message message; }
         static class Message { @SerializedName("content") String content; }
     }
 
+    private static class StreamChunk {
+        @SerializedName("choices") java.util.List<Choice> choices;
+        @SerializedName("usage") Usage usage;
+        static class Choice { @SerializedName("delta") Delta delta; }
+        static class Delta { @SerializedName("content") String content; }
+    }
+
+    private static class Usage {
+        @SerializedName("prompt_tokens") int promptTokens;
+        @SerializedName("completion_tokens") int completionTokens;
+        @SerializedName("prompt_tokens_details") PromptDetails promptDetails;
+        static class PromptDetails { @SerializedName("cached_tokens") int cachedTokens; }
+    }
+
     private static class AIPayload {
+        @SerializedName("candidates") java.util.List<AIPayload> candidates;
         @SerializedName("search_query") String searchQuery;
         @SerializedName("reason") String reason;
     }
@@ -3,8 +3,10 @@ package com.comp90018.contexttunes.domain;
 import com.comp90018.contexttunes.data.sensors.LightSensor.LightBucket;
 import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Represents the user's current context derived from multiple sensors and APIs.
@@ -55,6 +57,38 @@ public class Context {
         return imageLabels != null && !imageLabels.isEmpty();
     }
 
+    /**
+     * Stable key used to cache AI results. Two contexts that would produce the same prompt
+     * (ignoring case, whitespace and label order) share a key.
+     */
+    public String normalizedKey() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(lightLevel != null ? lightLevel.name() : "UNKNOWN").append('|');
+        sb.append(norm(timeOfDay)).append('|');
+        sb.append(norm(activity)).append('|');
+        sb.append(weather != null ? weather.name() : "UNKNOWN").append('|');
+        if (placeTag != null) {
+            sb.append("tag:").append(norm(placeTag));
+        } else {
+            // Every type the prompt sends; sorted, since Places' relevance order jitters between calls
+            sb.append("near:").append(joinSorted(nearbyPlaceTypes));
+        }
+        sb.append('|').append(joinSorted(imageLabels));
+        return sb.toString();
+    }
+
+    private static String norm(String s) {
+        return s == null ? "-" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String joinSorted(List<String> values) {
+        if (values == null || values.isEmpty()) return "-";
+        List<String> copy = new ArrayList<>();
+        for (String v : values) copy.add(norm(v));
+        Collections.sort(copy);
+        return String.join(",", copy);
+    }
+
     public String getLocationSummary() {
         if (placeTag != null) {
             return "at " + placeTag;
@@ -0,0 +1,319 @@
+package com.comp90018.contexttunes.domain;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.comp90018.contexttunes.data.sensors.LightSensor.LightBucket;
+import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device nearest-neighbour recommender learned from past AI answers.
+ * Every (Context → search_query) pair the AI produced is recorded together with whether the
+ * user went on to save or open one of the results. For a new context we return the query of
+ * the most similar past context, in well under a millisecond and without network.
+ *
+ * Contexts are encoded into a single 64-bit feature mask (one-hot for light / time / activity /
+ * weather / tagged place, hashed bits for nearby place types and image labels), so a lookup is a
+ * brute-force scan of a long[] with a handful of AND + bitCount operations per entry.
+ *
+ * Usage:
+ *   LocalQueryRecommender local = LocalQueryRecommender.getInstance(appContext);
+ *   local.record(ctx, rec.searchQuery);         // after every fresh AI completion
+ *   local.markEngaged(query);                   // when the user saves / opens a result
+ *   String q = local.suggest(ctx);              // null if nothing similar enough
+ */
+public class LocalQueryRecommender {
+
+    private static final String TAG = "LocalQueryRecommender";
+    private static final String PREFS_NAME = "local_query_history";
+    private static final String KEY_ENTRIES = "entries";
+
+    private static final int MAX_ENTRIES = 500;
+    // Fraction of the best possible score a neighbour needs before we trust it
+    private static final float MIN_SIMILARITY = 0.45f;
+    private static final float ENGAGEMENT_BONUS = 0.15f; // per save/open, capped below
+    private static final int MAX_ENGAGEMENT = 3;
+
+    // ---- 64-bit layout ----
+    // bits  0-3   light bucket (one-hot)
+    // bits  4-7   time of day (one-hot)
+    // bits  8-12  activity (one-hot)
+    // bits 13-15  weather (one-hot)
+    // bits 16-21  tagged place (one-hot: Home, Gym, Office, Library, Park, Cafe)
+    // bits 22-31  nearby place types (hashed)
+    // bits 32-63  image labels (hashed)
+    private static final long MASK_LIGHT   = 0xFL;
+    private static final long MASK_TIME    = 0xFL << 4;
+    private static final long MASK_ACT     = 0x1FL << 8;
+    private static final long MASK_WEATHER = 0x7L << 13;
+    private static final long MASK_PLACE   = 0xFFFFL << 16;  // tag + nearby share one group
+    private static final long MASK_IMAGE   = 0xFFFFFFFFL << 32;
+
+    private static final long[] GROUP_MASKS = {MASK_PLACE, MASK_IMAGE, MASK_ACT, MASK_TIME, MASK_WEATHER, MASK_LIGHT};
+    // Same priority the AI prompt uses: place/camera > activity > time > weather > light
+    private static final float[] GROUP_WEIGHTS = {4f, 4f, 3f, 2f, 1.5f, 1f};
+
+    private static final String[] TIMES = {"morning", "afternoon", "evening", "night"};
+    private static final String[] ACTIVITIES = {"still", "walking", "running", "wheels"};
+    private static final String[] PLACE_TAGS = {"home", "gym", "office", "library", "park", "cafe"};
+
+    private static volatile LocalQueryRecommender INSTANCE;
+
+    /** Persisted shape of one observation. */
+    public static class Entry {
+        public final Context context;
+        public final String searchQuery;
+        int engagement;       // number of saves/opens attributed to this answer
+        final long recordedAt;
+
+        Entry(Context context, String searchQuery, long recordedAt) {
+            this.context = context;
+            this.searchQuery = searchQuery;
+            this.recordedAt = recordedAt;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    // Writes are serialised and applied here; bursts of updates collapse into one write
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor();
+    private boolean persistQueued = false;
+
+    // Parallel arrays, oldest first; vectors[i] encodes entries.get(i).context
+    private final List<Entry> entries = new ArrayList<>();
+    private long[] vectors = new long[0];
+
+    private LocalQueryRecommender(@NonNull android.content.Context appContext) {
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, android.content.Context.MODE_PRIVATE);
+        load();
+    }
+
+    public static LocalQueryRecommender getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (LocalQueryRecommender.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LocalQueryRecommender(ctx.getApplicationContext());
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // ---------------- Public API ----------------
+
+    /** Record an AI answer for this context; a repeat of the latest answer for it is ignored. */
+    public synchronized void record(@NonNull Context context, @NonNull String searchQuery) {
+        String q = searchQuery.trim();
+        if (q.isEmpty()) return;
+        String key = context.normalizedKey();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry e = entries.get(i);
+            if (!key.equals(e.context.normalizedKey())) continue;
+            if (e.searchQuery.equalsIgnoreCase(q)) return;
+            break;
+        }
+        entries.add(new Entry(context, q, System.currentTimeMillis()));
+        if (entries.size() > MAX_ENTRIES) {
+            entries.subList(0, entries.size() - MAX_ENTRIES).clear();
+        }
+        rebuildVectors();
+        persist();
+    }
+
+    /** The user saved or opened a result of this query → its most recent entry gets a boost. */
+    public synchronized void markEngaged(@Nullable String searchQuery) {
+        if (searchQuery == null) return;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry e = entries.get(i);
+            if (e.searchQuery.equalsIgnoreCase(searchQuery.trim())) {
+                if (e.engagement < MAX_ENGAGEMENT) {
+                    e.engagement++;
+                    persist();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Query of the most similar past context, or null when history is empty or nothing is
+     * similar enough to be a sensible answer.
+     */
+    @Nullable
+    public synchronized String suggest(@NonNull Context context) {
+        if (vectors.length == 0) return null;
+        long v = encode(context);
+
+        // Only groups we actually sensed this time count towards the achievable score
+        float maxScore = 0f;
+        for (int g = 0; g < GROUP_MASKS.length; g++) {
+            if ((v & GROUP_MASKS[g]) != 0) maxScore += GROUP_WEIGHTS[g];
+        }
+        if (maxScore == 0f) return null;
+
+        int best = -1;
+        float bestScore = 0f;
+        for (int i = 0; i < vectors.length; i++) {
+            float score = similarity(v, vectors[i]) * (1f + ENGAGEMENT_BONUS * entries.get(i).engagement);
+            // >= so that among equals the newest observation wins
+            if (score >= bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        if (best < 0 || bestScore < MIN_SIMILARITY * maxScore) return null;
+        return entries.get(best).searchQuery;
+    }
+
+    public synchronized boolean hasHistory() {
+        return !entries.isEmpty();
+    }
+
+    /**
+     * The distinct past contexts seen most often at this time of day, most likely first.
+     * Ranked by how often each context recurred, its engagement, and how recently it was seen.
+     */
+    @NonNull
+    public synchronized List<Context> frequentContexts(@NonNull String timeOfDay, int max) {
+        Map<String, Float> scores = new HashMap<>();
+        Map<String, Context> latest = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Entry e : entries) {
+            if (!timeOfDay.equalsIgnoreCase(e.context.timeOfDay)) continue;
+            String key = e.context.normalizedKey();
+            float ageDays = Math.max(0f, (now - e.recordedAt) / 86_400_000f);
+            float weight = (1f + ENGAGEMENT_BONUS * e.engagement) / (1f + ageDays / 7f); // halves after a week
+            Float prev = scores.get(key);
+            scores.put(key, prev == null ? weight : prev + weight);
+            latest.put(key, e.context); // entries are oldest first → newest wins
+        }
+        List<String> keys = new ArrayList<>(scores.keySet());
+        Collections.sort(keys, (a, b) -> Float.compare(scores.get(b), scores.get(a)));
+        List<Context> out = new ArrayList<>();
+        for (int i = 0; i < keys.size() && out.size() < max; i++) out.add(latest.get(keys.get(i)));
+        return out;
+    }
+
+    /** Snapshot of recorded observations, oldest first. */
+    @NonNull
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    // ---------------- Encoding ----------------
+
+    static long encode(@NonNull Context c) {
+        long v = 0L;
+        if (c.lightLevel != null && c.lightLevel != LightBucket.UNKNOWN) {
+            v |= 1L << c.lightLevel.ordinal();
+        }
+        int t = indexOf(TIMES, c.timeOfDay);
+        if (t >= 0) v |= 1L << (4 + t);
+
+        int a = indexOf(ACTIVITIES, c.activity);
+        if (c.activity != null) v |= 1L << (8 + (a >= 0 ? a : 4)); // 4 = "other"
+
+        if (c.weather != null && c.weather != WeatherState.UNKNOWN) {
+            v |= 1L << (13 + c.weather.ordinal());
+        }
+
+        if (c.placeTag != null) {
+            int p = indexOf(PLACE_TAGS, c.placeTag);
+            v |= 1L << (p >= 0 ? 16 + p : 22 + hashBits(c.placeTag, 10));
+        }
+        if (c.nearbyPlaceTypes != null) { // may be null on entries restored by Gson
+            for (String type : c.nearbyPlaceTypes) {
+                if (type != null) v |= 1L << (22 + hashBits(type, 10));
+            }
+        }
+        if (c.imageLabels != null) {
+            for (String label : c.imageLabels) {
+                if (label != null) v |= 1L << (32 + hashBits(label, 32));
+            }
+        }
+        return v;
+    }
+
+    /** Weighted per-group Jaccard overlap. */
+    private static float similarity(long a, long b) {
+        float score = 0f;
+        for (int g = 0; g < GROUP_MASKS.length; g++) {
+            long ga = a & GROUP_MASKS[g];
+            long gb = b & GROUP_MASKS[g];
+            int union = Long.bitCount(ga | gb);
+            if (union == 0) continue; // both unknown: no evidence either way
+            score += GROUP_WEIGHTS[g] * Long.bitCount(ga & gb) / union;
+        }
+        return score;
+    }
+
+    private static int indexOf(String[] values, @Nullable String s) {
+        if (s == null) return -1;
+        String n = s.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(n)) return i;
+        }
+        return -1;
+    }
+
+    private static int hashBits(@NonNull String s, int buckets) {
+        return Math.floorMod(s.trim().toLowerCase(Locale.ROOT).hashCode(), buckets);
+    }
+
+    // ---------------- Persistence ----------------
+
+    private void rebuildVectors() {
+        long[] out = new long[entries.size()];
+        for (int i = 0; i < out.length; i++) out[i] = encode(entries.get(i).context);
+        vectors = out;
+    }
+
+    private void load() {
+        try {
+            String json = prefs.getString(KEY_ENTRIES, null);
+            if (json != null) {
+                Type t = new TypeToken<List<Entry>>(){}.getType();
+                List<Entry> stored = gson.fromJson(json, t);
+                if (stored != null) {
+                    for (Entry e : stored) {
+                        if (e != null && e.context != null && e.searchQuery != null) entries.add(e);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable query history", e);
+            entries.clear();
+        }
+        rebuildVectors();
+        Log.d(TAG, "Loaded " + entries.size() + " past context → query pairs");
+    }
+
+    /** Schedules a write of the whole history; JSON is built and applied off the caller's thread. */
+    private void persist() {
+        if (persistQueued) return;
+        persistQueued = true;
+        persistExecutor.execute(() -> {
+            List<Entry> snapshot;
+            synchronized (this) {
+                persistQueued = false;
+                snapshot = new ArrayList<>(entries);
+            }
+            prefs.edit().putString(KEY_ENTRIES, gson.toJson(snapshot)).apply();
+        });
+    }
+}
@@ -0,0 +1,420 @@
+package com.comp90018.contexttunes.domain;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Read-only snapshot of albums per search query, used when Spotify can't be reached.
+ * Rebuilt in the background from the results store ({@link #rebuildFrom}) or imported from a JSON
+ * file ({@link #importJson}); looked up by the terms of a new query, so "rainy lo-fi beats" still
+ * finds albums stored under "rainy day lo-fi".
+ *
+ * File layout (big-endian), memory-mapped read-only:
+ *   header   MAGIC, VERSION, termCount, albumCount, postingsStart, albumsStart, stringsStart
+ *   terms    termCount × [long termHash, int firstPosting, int postingCount], sorted by hash
+ *   postings int album indices per term, best first
+ *   albums   albumCount × [int offset, int length] into the strings area
+ *   strings  per album: UTF-8 fields separated by FIELD_SEP (see {@link #encode})
+ * Each album is stored once, with every query it was found for, so a lookup never returns
+ * the same album twice.
+ * A lookup is one binary search per query term over the mapped term table, plus decoding only
+ * the albums that are returned.
+ */
+public final class OfflineCatalog {
+
+    private static final String TAG = "OfflineCatalog";
+    private static final String FILE_NAME = "offline_catalog.bin";
+    private static final int MAGIC = 0x43544341; // "CTCA"
+    private static final int VERSION = 2; // v1: one record per (query, album), no cover sizes
+    private static final int HEADER_BYTES = 7 * 4;
+    private static final int TERM_BYTES = 16;
+    private static final int ALBUM_BYTES = 8;
+    private static final char FIELD_SEP = '\u001f';
+
+    private static final int MAX_ALBUMS = 2000;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "for", "with", "of", "to", "in", "on", "a", "an", "music", "songs", "playlist"));
+
+    private static volatile OfflineCatalog INSTANCE;
+
+    private final File file;
+    @Nullable private volatile ByteBuffer mapped; // null → no catalog yet
+
+    /** One album found for one query, at this rank. */
+    private static final class Posting {
+        final String query;
+        final int rank;
+        final SpotifyPlaylist album;
+
+        Posting(String query, int rank, SpotifyPlaylist album) {
+            this.query = query;
+            this.rank = rank;
+            this.album = album;
+        }
+    }
+
+    /** One album as stored, with every query it was found for and its rank there. */
+    private static final class Record {
+        final SpotifyPlaylist album;
+        final List<String> queries = new ArrayList<>();
+        final List<Integer> ranks = new ArrayList<>();
+
+        Record(SpotifyPlaylist album) {
+            this.album = album;
+        }
+
+        /** Keeps the first rank seen for a query (callers pass newer data first). */
+        void add(String query, int rank) {
+            for (String q : queries) {
+                if (q.equalsIgnoreCase(query.trim())) return;
+            }
+            queries.add(query.trim());
+            ranks.add(rank);
+        }
+
+        int bestRank() {
+            int best = Integer.MAX_VALUE;
+            for (int r : ranks) best = Math.min(best, r);
+            return best;
+        }
+    }
+
+    private OfflineCatalog(@NonNull File file) {
+        this.file = file;
+        map();
+    }
+
+    public static OfflineCatalog getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (OfflineCatalog.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new OfflineCatalog(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public int size() {
+        ByteBuffer b = mapped;
+        return b == null ? 0 : b.getInt(12);
+    }
+
+    /**
+     * Up to 'limit' distinct albums for this query, best first: each query term that is in the
+     * catalog adds 1 / (rank + 1) to the albums stored under it. Empty when nothing matches.
+     */
+    @NonNull
+    public List<SpotifyPlaylist> lookup(@NonNull String query, int limit) {
+        ByteBuffer b = mapped;
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        if (b == null || limit <= 0) return out;
+        b = b.duplicate(); // absolute reads only, but keep callers independent
+
+        int termCount = b.getInt(8);
+        int postingsStart = b.getInt(16);
+        int albumsStart = b.getInt(20);
+        int stringsStart = b.getInt(24);
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String term : terms(query)) {
+            int t = findTerm(b, termCount, hash(term));
+            if (t < 0) continue;
+            int entry = HEADER_BYTES + t * TERM_BYTES;
+            int first = b.getInt(entry + 8);
+            int count = b.getInt(entry + 12);
+            for (int i = 0; i < count; i++) {
+                int album = b.getInt(postingsStart + (first + i) * 4);
+                scores.merge(album, 1.0 / (i + 1), Double::sum);
+            }
+        }
+        if (scores.isEmpty()) return out;
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((x, y) -> {
+            int c = Double.compare(y.getValue(), x.getValue());
+            return c != 0 ? c : Integer.compare(x.getKey(), y.getKey());
+        });
+        for (Map.Entry<Integer, Double> e : ranked) {
+            if (out.size() >= limit) break;
+            Record r = decode(b, albumsStart, stringsStart, e.getKey());
+            if (r != null) out.add(r.album);
+        }
+        return out;
+    }
+
+    /**
+     * Adds the results store's lists (query → albums) to the catalog and rewrites the file.
+     * Existing entries are kept behind the new ones up to MAX_ALBUMS.
+     */
+    public synchronized void rebuildFrom(@NonNull Map<String, List<SpotifyPlaylist>> resultsByQuery) {
+        List<Posting> postings = new ArrayList<>();
+        for (Map.Entry<String, List<SpotifyPlaylist>> e : resultsByQuery.entrySet()) {
+            List<SpotifyPlaylist> list = e.getValue();
+            if (list == null) continue;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) != null && list.get(i).id != null) postings.add(new Posting(e.getKey(), i, list.get(i)));
+            }
+        }
+        postings.addAll(readAll());
+        write(postings);
+    }
+
+    /** Imports a snapshot file shaped like {"query": [SpotifyPlaylist, ...], ...}. */
+    public void importJson(@NonNull Reader json) {
+        Type t = new TypeToken<LinkedHashMap<String, List<SpotifyPlaylist>>>(){}.getType();
+        Map<String, List<SpotifyPlaylist>> snapshot = new Gson().fromJson(json, t);
+        if (snapshot != null) rebuildFrom(snapshot);
+    }
+
+    // ---------------- Terms ----------------
+
+    /** Lower-cased alphanumeric words, minus stop words and very short tokens. */
+    static List<String> terms(String text) {
+        List<String> out = new ArrayList<>();
+        for (String w : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (w.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(w) && !out.contains(w)) out.add(w);
+        }
+        return out;
+    }
+
+    /** FNV-1a 64 of the term's UTF-8 bytes. */
+    static long hash(String term) {
+        long h = 0xcbf29ce484222325L;
+        for (byte c : term.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (c & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static int findTerm(ByteBuffer b, int termCount, long hash) {
+        int lo = 0, hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long h = b.getLong(HEADER_BYTES + mid * TERM_BYTES);
+            if (h < hash) lo = mid + 1;
+            else if (h > hash) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // ---------------- File ----------------
+
+    private void map() {
+        if (!file.isFile()) {
+            mapped = null;
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel ch = raf.getChannel()) {
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // stays valid after close
+            if (b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+                Log.w(TAG, "Ignoring catalog with unknown format");
+                mapped = null;
+                return;
+            }
+            mapped = b;
+            Log.d(TAG, "Mapped catalog: " + b.getInt(12) + " albums, " + b.getInt(8) + " terms, " + ch.size() + " bytes");
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable catalog", e);
+            mapped = null;
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    /** Every (query, album) pair in the current file, in album order. */
+    private List<Posting> readAll() {
+        List<Posting> out = new ArrayList<>();
+        ByteBuffer b = mapped;
+        if (b == null) return out;
+        int albumCount = b.getInt(12);
+        int albumsStart = b.getInt(20);
+        int stringsStart = b.getInt(24);
+        for (int i = 0; i < albumCount; i++) {
+            Record r = decode(b, albumsStart, stringsStart, i);
+            if (r == null) continue;
+            for (int q = 0; q < r.queries.size(); q++) out.add(new Posting(r.queries.get(q), r.ranks.get(q), r.album));
+        }
+        return out;
+    }
+
+    private void write(List<Posting> postings) {
+        // One record per album id; earlier postings (newer data) win
+        Map<String, Record> byId = new LinkedHashMap<>();
+        for (Posting p : postings) {
+            Record r = byId.get(p.album.id);
+            if (r == null) {
+                if (byId.size() >= MAX_ALBUMS) continue;
+                r = new Record(p.album);
+                byId.put(p.album.id, r);
+            }
+            r.add(p.query, p.rank);
+        }
+        List<Record> albums = new ArrayList<>(byId.values());
+
+        // term hash → (album index → rank); query terms first, then album-name terms
+        TreeMap<Long, Map<Integer, Integer>> index = new TreeMap<>(Long::compare);
+        for (int i = 0; i < albums.size(); i++) {
+            Record r = albums.get(i);
+            for (int q = 0; q < r.queries.size(); q++) {
+                for (String term : terms(r.queries.get(q))) {
+                    index.computeIfAbsent(hash(term), k -> new LinkedHashMap<>()).merge(i, r.ranks.get(q), Math::min);
+                }
+            }
+        }
+        for (int i = 0; i < albums.size(); i++) {
+            Record r = albums.get(i);
+            for (String term : terms(r.album.name + " " + r.album.ownerName)) {
+                index.computeIfAbsent(hash(term), k -> new LinkedHashMap<>()).putIfAbsent(i, r.bestRank());
+            }
+        }
+        Map<Long, List<Integer>> postingLists = new TreeMap<>(Long::compare);
+        for (Map.Entry<Long, Map<Integer, Integer>> e : index.entrySet()) {
+            Map<Integer, Integer> ranks = e.getValue();
+            List<Integer> list = new ArrayList<>(ranks.keySet());
+            // stable: rank within its query decides, ties keep insertion order
+            list.sort((x, y) -> Integer.compare(ranks.get(x), ranks.get(y)));
+            postingLists.put(e.getKey(), list);
+        }
+
+        List<byte[]> records = new ArrayList<>();
+        for (Record r : albums) records.add(encode(r).getBytes(StandardCharsets.UTF_8));
+        int postingTotal = 0;
+        for (List<Integer> l : postingLists.values()) postingTotal += l.size();
+
+        int termsStart = HEADER_BYTES;
+        int postingsStart = termsStart + index.size() * TERM_BYTES;
+        int albumsStart = postingsStart + postingTotal * 4;
+        int stringsStart = albumsStart + records.size() * ALBUM_BYTES;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.size());
+            out.writeInt(records.size());
+            out.writeInt(postingsStart);
+            out.writeInt(albumsStart);
+            out.writeInt(stringsStart);
+
+            int next = 0;
+            for (Map.Entry<Long, List<Integer>> e : postingLists.entrySet()) {
+                out.writeLong(e.getKey());
+                out.writeInt(next);
+                out.writeInt(e.getValue().size());
+                next += e.getValue().size();
+            }
+            for (List<Integer> l : postingLists.values()) {
+                for (int album : l) out.writeInt(album);
+            }
+            int offset = 0;
+            for (byte[] r : records) {
+                out.writeInt(offset);
+                out.writeInt(r.length);
+                offset += r.length;
+            }
+            for (byte[] r : records) out.write(r);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to write catalog", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Failed to replace " + file.getName());
+            return;
+        }
+        map();
+        Log.d(TAG, "Rebuilt catalog: " + records.size() + " albums, " + index.size() + " terms");
+    }
+
+    /**
+     * id, name, description, imageUrl, ownerName, totalTracks, externalUrl,
+     * imageCount, imageCount × (url, width, height), queryCount, queryCount × (query, rank)
+     */
+    private static String encode(Record r) {
+        SpotifyPlaylist a = r.album;
+        List<String> f = new ArrayList<>(Arrays.asList(clean(a.id), clean(a.name), clean(a.description),
+                clean(a.imageUrl), clean(a.ownerName), String.valueOf(a.totalTracks), clean(a.externalUrl)));
+        List<SpotifyPlaylist.Image> images = a.images != null ? a.images : new ArrayList<>();
+        f.add(String.valueOf(images.size()));
+        for (SpotifyPlaylist.Image img : images) {
+            f.add(clean(img.url));
+            f.add(String.valueOf(img.width));
+            f.add(String.valueOf(img.height));
+        }
+        f.add(String.valueOf(r.queries.size()));
+        for (int q = 0; q < r.queries.size(); q++) {
+            f.add(clean(r.queries.get(q)));
+            f.add(String.valueOf(r.ranks.get(q)));
+        }
+        return String.join(String.valueOf(FIELD_SEP), f);
+    }
+
+    /** The record at this album index; null when it is malformed. */
+    @Nullable
+    private static Record decode(ByteBuffer b, int albumsStart, int stringsStart, int index) {
+        int offset = b.getInt(albumsStart + index * ALBUM_BYTES);
+        int length = b.getInt(albumsStart + index * ALBUM_BYTES + 4);
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = b.duplicate();
+        slice.position(stringsStart + offset);
+        slice.get(bytes);
+        String[] f = new String(bytes, StandardCharsets.UTF_8).split(String.valueOf(FIELD_SEP), -1);
+        if (f.length < 9) return null;
+
+        int i = 7;
+        int imageCount = parseInt(f[i++]);
+        if (imageCount < 0 || f.length < i + imageCount * 3 + 1) return null;
+        List<SpotifyPlaylist.Image> images = new ArrayList<>(imageCount);
+        for (int k = 0; k < imageCount; k++, i += 3) {
+            images.add(new SpotifyPlaylist.Image(f[i], parseInt(f[i + 1]), parseInt(f[i + 2])));
+        }
+        int queryCount = parseInt(f[i++]);
+        if (queryCount < 0 || f.length < i + queryCount * 2) return null;
+
+        Record r = new Record(new SpotifyPlaylist(f[0], f[1], f[2], f[3], images, f[4], parseInt(f[5]), f[6]));
+        for (int k = 0; k < queryCount; k++, i += 2) r.add(f[i], parseInt(f[i + 1]));
+        return r;
+    }
+
+    private static String clean(@Nullable String s) {
+        return s == null ? "" : s.replace(FIELD_SEP, ' ');
+    }
+
+    private static int parseInt(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.comp90018.contexttunes.domain;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent store of Spotify results per search query, so a GO whose query was predicted and
+ * resolved by the background warmer renders without touching the network.
+ * Keyed by the normalised query + result limit; entries expire after the TTL.
+ *
+ * Only the warmer writes here. The foreground {@link #take}s an entry, which serves it once:
+ * later GOs / Regenerates for the same query go to the network (ETag revalidation, seen-albums
+ * filter) until the warmer refreshes it. Served entries are kept for {@link #snapshot()}.
+ *
+ * Thread-safe: filled from the warmer job, read on the main thread.
+ */
+public class PlaylistResultsCache {
+
+    private static final String TAG = "PlaylistResultsCache";
+    private static final String PREFS_NAME = "spotify_results_cache";
+    private static final String KEY_ENTRIES = "entries";
+
+    public static final long DEFAULT_TTL_MS = 12 * 60 * 60 * 1000L; // 12 h
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    private static volatile PlaylistResultsCache INSTANCE;
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    // Writes are serialised and applied here; bursts of updates collapse into one write
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor();
+    private boolean persistQueued = false;
+    private final long ttlMs;
+    private final int maxEntries;
+
+    // Insertion-ordered so the oldest entry is evicted first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Persisted shape of one cached result list. */
+    private static class Entry {
+        final List<SpotifyPlaylist> playlists;
+        final long storedAt;
+        boolean served; // already shown once by take()
+
+        Entry(List<SpotifyPlaylist> playlists, long storedAt) {
+            this.playlists = playlists;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private PlaylistResultsCache(@NonNull android.content.Context appContext, long ttlMs, int maxEntries) {
+        this.prefs = appContext.getSharedPreferences(PREFS_NAME, android.content.Context.MODE_PRIVATE);
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+        load();
+    }
+
+    public static PlaylistResultsCache getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (PlaylistResultsCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new PlaylistResultsCache(ctx.getApplicationContext(),
+                            DEFAULT_TTL_MS, DEFAULT_MAX_ENTRIES);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Fresh, not yet served results for this query, or null on miss. Marks the entry served. */
+    @Nullable
+    public synchronized List<SpotifyPlaylist> take(@NonNull String query, int limit) {
+        Entry e = entries.get(key(query, limit));
+        if (!isServable(e)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        e.served = true;
+        persist();
+        hits.incrementAndGet();
+        return new ArrayList<>(e.playlists);
+    }
+
+    /** Whether a fresh, unserved entry exists, without touching the hit / miss counters. */
+    public synchronized boolean contains(@NonNull String query, int limit) {
+        return isServable(entries.get(key(query, limit)));
+    }
+
+    public synchronized void put(@NonNull String query, int limit, @NonNull List<SpotifyPlaylist> playlists) {
+        if (playlists.isEmpty()) return; // an empty page is not worth serving instantly
+        String key = key(query, limit);
+        entries.remove(key); // re-insert at the tail
+        entries.put(key, new Entry(new ArrayList<>(playlists), System.currentTimeMillis()));
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        persist();
+    }
+
+    /** Every stored list by normalised query, expired ones included (for the offline catalog). */
+    @NonNull
+    public synchronized Map<String, List<SpotifyPlaylist>> snapshot() {
+        Map<String, List<SpotifyPlaylist>> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().playlists == null) continue;
+            String key = e.getKey();
+            int hash = key.lastIndexOf('#');
+            out.put(hash > 0 ? key.substring(0, hash) : key, new ArrayList<>(e.getValue().playlists));
+        }
+        return out;
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    // ---------------- Internals ----------------
+
+    private boolean isServable(@Nullable Entry e) {
+        return e != null && !e.served && e.playlists != null
+                && System.currentTimeMillis() - e.storedAt <= ttlMs;
+    }
+
+    private static String key(@NonNull String query, int limit) {
+        return query.trim().toLowerCase(Locale.ROOT) + "#" + limit;
+    }
+
+    private void load() {
+        try {
+            String json = prefs.getString(KEY_ENTRIES, null);
+            if (json == null) return;
+            Type t = new TypeToken<LinkedHashMap<String, Entry>>(){}.getType();
+            LinkedHashMap<String, Entry> stored = gson.fromJson(json, t);
+            if (stored != null) entries.putAll(stored);
+            Log.d(TAG, "Loaded " + entries.size() + " cached result lists from disk");
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable results cache", e);
+            prefs.edit().remove(KEY_ENTRIES).apply();
+        }
+    }
+
+    /** Schedules a write of the whole store; JSON is built and applied off the caller's thread. */
+    private void persist() {
+        if (persistQueued) return;
+        persistQueued = true;
+        persistExecutor.execute(() -> {
+            LinkedHashMap<String, Entry> snapshot;
+            synchronized (this) {
+                persistQueued = false;
+                snapshot = new LinkedHashMap<>(entries);
+            }
+            prefs.edit().putString(KEY_ENTRIES, gson.toJson(snapshot)).apply();
+        });
+    }
+}
@@ -0,0 +1,218 @@
+package com.comp90018.contexttunes.domain;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache for AI search recommendations, keyed by {@link Context#normalizedKey()}.
+ * - Tier 1: small in-memory LRU (microsecond lookups, lost on process death)
+ * - Tier 2: SharedPreferences-backed store that survives restarts, one pref per entry. It is
+ *   read per key on a memory miss and written / trimmed on a background thread only.
+ * Entries older than the TTL are treated as misses; expired disk entries are dropped on the
+ * next background trim, never from get().
+ *
+ * Thread-safe: lookups come from the main thread, inserts from OkHttp callbacks.
+ */
+public class RecommendationCache {
+
+    private static final String TAG = "RecommendationCache";
+    private static final String PREFS_NAME = "ai_recommendation_cache";
+    private static final String KEY_PREFIX = "rec:";
+
+    public static final long DEFAULT_TTL_MS = 6 * 60 * 60 * 1000L; // 6 h
+    public static final int DEFAULT_MEMORY_ENTRIES = 32;
+    public static final int DEFAULT_DISK_ENTRIES = 128;
+
+    private static volatile RecommendationCache INSTANCE;
+
+    private final long ttlMs;
+    private final int maxDiskEntries;
+    @Nullable private final SharedPreferences prefs; // null → memory-only
+    @Nullable private final ExecutorService diskExecutor;
+    private final Gson gson = new Gson();
+
+    private final LinkedHashMap<String, Entry> memory;
+    // key → storedAt of every entry on disk, oldest first. Confined to diskExecutor; built on first write.
+    @Nullable private LinkedHashMap<String, Long> diskIndex;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Persisted shape of a cached recommendation. */
+    private static class Entry {
+        final SearchRecommendation recommendation;
+        final long storedAt;
+
+        Entry(SearchRecommendation recommendation, long storedAt) {
+            this.recommendation = recommendation;
+            this.storedAt = storedAt;
+        }
+    }
+
+    /**
+     * @param appContext     used for the on-disk tier; pass null for a memory-only cache
+     * @param ttlMs          max age of an entry before it is considered a miss
+     * @param maxMemoryEntries LRU capacity of the in-memory tier
+     * @param maxDiskEntries capacity of the on-disk tier (oldest evicted first)
+     */
+    public RecommendationCache(@Nullable android.content.Context appContext, long ttlMs,
+                               int maxMemoryEntries, int maxDiskEntries) {
+        this.ttlMs = ttlMs;
+        this.maxDiskEntries = maxDiskEntries;
+        this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        this.prefs = appContext == null || maxDiskEntries <= 0 ? null
+                : appContext.getApplicationContext().getSharedPreferences(PREFS_NAME, android.content.Context.MODE_PRIVATE);
+        this.diskExecutor = prefs == null ? null : Executors.newSingleThreadExecutor();
+    }
+
+    /** Process-wide cache with default limits, shared by every recommender instance. */
+    public static RecommendationCache getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (RecommendationCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new RecommendationCache(ctx.getApplicationContext(),
+                            DEFAULT_TTL_MS, DEFAULT_MEMORY_ENTRIES, DEFAULT_DISK_ENTRIES);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** Returns a fresh cached recommendation for this context, or null on miss. */
+    @Nullable
+    public synchronized SearchRecommendation get(@NonNull Context context) {
+        String key = context.normalizedKey();
+        long now = System.currentTimeMillis();
+
+        Entry e = memory.get(key);
+        if (e != null && isFresh(e, now)) {
+            memoryHits.incrementAndGet();
+            return e.recommendation;
+        }
+        if (e != null) memory.remove(key); // expired; the disk copy goes with the next trim
+
+        e = readDisk(key);
+        if (e != null && isFresh(e, now)) {
+            diskHits.incrementAndGet();
+            memory.put(key, e); // promote
+            return e.recommendation;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public synchronized void put(@NonNull Context context, @NonNull SearchRecommendation rec) {
+        String key = context.normalizedKey();
+        Entry e = new Entry(rec, System.currentTimeMillis());
+        memory.put(key, e);
+        if (diskExecutor != null) diskExecutor.execute(() -> writeDisk(key, e));
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        if (diskExecutor != null) {
+            diskExecutor.execute(() -> {
+                diskIndex = new LinkedHashMap<>();
+                prefs.edit().clear().apply();
+            });
+        }
+    }
+
+    // ---------------- Stats ----------------
+
+    public long getHitCount() { return memoryHits.get() + diskHits.get(); }
+    public long getMemoryHitCount() { return memoryHits.get(); }
+    public long getDiskHitCount() { return diskHits.get(); }
+    public long getMissCount() { return misses.get(); }
+
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + misses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // ---------------- Internals ----------------
+
+    private boolean isFresh(@NonNull Entry e, long now) {
+        return e.recommendation != null && now - e.storedAt <= ttlMs;
+    }
+
+    /** Single-entry read from the disk tier; null when absent, unreadable or memory-only. */
+    @Nullable
+    private Entry readDisk(@NonNull String key) {
+        if (prefs == null) return null;
+        String json = prefs.getString(KEY_PREFIX + key, null);
+        if (json == null) return null;
+        try {
+            return gson.fromJson(json, Entry.class);
+        } catch (Exception e) {
+            Log.w(TAG, "Ignoring unreadable cached recommendation for " + key, e);
+            return null;
+        }
+    }
+
+    /** Runs on diskExecutor: writes one entry, then drops expired and over-capacity entries. */
+    private void writeDisk(@NonNull String key, @NonNull Entry e) {
+        LinkedHashMap<String, Long> index = loadDiskIndex();
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putString(KEY_PREFIX + key, gson.toJson(e));
+        index.remove(key); // re-insert at the tail
+        index.put(key, e.storedAt);
+
+        List<String> drop = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> next = it.next();
+            if (index.size() <= maxDiskEntries && now - next.getValue() <= ttlMs) continue;
+            drop.add(next.getKey());
+            it.remove();
+        }
+        for (String k : drop) editor.remove(KEY_PREFIX + k);
+        editor.apply();
+    }
+
+    /** Index of the disk tier, read once from prefs (oldest first). */
+    @NonNull
+    private LinkedHashMap<String, Long> loadDiskIndex() {
+        if (diskIndex != null) return diskIndex;
+        List<Map.Entry<String, Long>> found = new ArrayList<>();
+        for (Map.Entry<String, ?> pref : prefs.getAll().entrySet()) {
+            if (!pref.getKey().startsWith(KEY_PREFIX) || !(pref.getValue() instanceof String)) continue;
+            String key = pref.getKey().substring(KEY_PREFIX.length());
+            try {
+                Entry e = gson.fromJson((String) pref.getValue(), Entry.class);
+                found.add(new AbstractMap.SimpleEntry<>(key, e != null ? e.storedAt : 0L));
+            } catch (Exception ex) {
+                found.add(new AbstractMap.SimpleEntry<>(key, 0L)); // unreadable → trimmed first
+            }
+        }
+        found.sort((a, b) -> Long.compare(a.getValue(), b.getValue()));
+        diskIndex = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> f : found) diskIndex.put(f.getKey(), f.getValue());
+        Log.d(TAG, "Indexed " + diskIndex.size() + " cached recommendations on disk");
+        return diskIndex;
+    }
+}
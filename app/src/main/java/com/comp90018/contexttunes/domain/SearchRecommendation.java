@@ -1,16 +1,32 @@
 package com.comp90018.contexttunes.domain;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Output of the AI stage for Spotify search.
  * - searchQuery: the string you will pass to the Spotify search endpoint
  * - reason: a short human-readable explanation from the AI for debugging/transparency
+ * - alternatives: lower-ranked candidates from the same completion, best first
+ *   (used to serve Regenerate without another AI call)
  */
 public class SearchRecommendation {
     public final String searchQuery;
     public final String reason;
+    public final List<SearchRecommendation> alternatives;
 
     public SearchRecommendation(String searchQuery, String reason) {
+        this(searchQuery, reason, Collections.emptyList());
+    }
+
+    public SearchRecommendation(String searchQuery, String reason, List<SearchRecommendation> alternatives) {
         this.searchQuery = searchQuery;
         this.reason = reason;
+        this.alternatives = alternatives != null ? alternatives : Collections.emptyList();
+    }
+
+    /** Null-safe view: entries restored from older caches may not have the field. */
+    public List<SearchRecommendation> getAlternatives() {
+        return alternatives != null ? alternatives : Collections.emptyList();
     }
-}
\ No newline at end of file
+}
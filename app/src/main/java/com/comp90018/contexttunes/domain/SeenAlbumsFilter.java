@@ -0,0 +1,207 @@
+package com.comp90018.contexttunes.domain;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Albums shown to the user recently, so searches can skip them instead of repeating results
+ * across Regenerates and sessions.
+ *
+ * A Bloom filter split into SEGMENTS rotating segments of SEGMENT_BITS bits each (4 KB in total):
+ * new ids go into the current segment, lookups check all of them, and every ROTATION_MS the
+ * oldest segment is cleared and becomes current. An id is therefore forgotten 3–4 days after it
+ * was last shown. Each segment holds ~1000 ids at ~2% false positives (a false positive only
+ * means an unseen album is skipped). Lookups are HASHES bit tests per segment.
+ *
+ * Persisted in filesDir on a background thread after updates; updates that arrive while a
+ * write is pending share it. Thread-safe.
+ */
+public final class SeenAlbumsFilter {
+
+    private static final String TAG = "SeenAlbumsFilter";
+    private static final String FILE_NAME = "seen_albums.bloom";
+    private static final int FILE_VERSION = 1;
+
+    private static final int SEGMENTS = 4;
+    private static final int SEGMENT_BITS = 8192;             // 1 KB per segment
+    private static final int WORDS = SEGMENT_BITS / 64;
+    private static final int HASHES = 4;
+    private static final long ROTATION_MS = 24 * 60 * 60 * 1000L;
+
+    private static volatile SeenAlbumsFilter INSTANCE;
+
+    private final File file;
+    private final LongSupplier clock; // wall clock ms
+    private final long[][] bits = new long[SEGMENTS][WORDS];
+    private int current = 0;          // segment receiving new ids
+    private long currentStartedAt;    // wall clock ms
+
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor();
+    private boolean persistQueued = false;
+
+    private SeenAlbumsFilter(@NonNull File file) {
+        this(file, System::currentTimeMillis);
+    }
+
+    /** For tests: a filter backed by this file, rotating on this clock. */
+    SeenAlbumsFilter(@NonNull File file, @NonNull LongSupplier clock) {
+        this.file = file;
+        this.clock = clock;
+        this.currentStartedAt = clock.getAsLong();
+        load();
+    }
+
+    public static SeenAlbumsFilter getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (SeenAlbumsFilter.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SeenAlbumsFilter(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /** True if this album was (probably) shown within the last few days. */
+    public synchronized boolean mightContain(@NonNull String albumId) {
+        rotateIfDue();
+        long h = hash64(albumId);
+        int h1 = (int) h, h2 = (int) (h >>> 32);
+        for (long[] segment : bits) {
+            if (allSet(segment, h1, h2)) return true;
+        }
+        return false;
+    }
+
+    /** Records albums the user has just been shown; the file is written in the background. */
+    public synchronized void markSeen(@NonNull List<SpotifyPlaylist> albums) {
+        if (albums.isEmpty()) return;
+        rotateIfDue();
+        long[] segment = bits[current];
+        for (SpotifyPlaylist p : albums) {
+            if (p == null || p.id == null) continue;
+            long h = hash64(p.id);
+            int h1 = (int) h, h2 = (int) (h >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, SEGMENT_BITS);
+                segment[bit >>> 6] |= 1L << bit;
+            }
+        }
+        persist();
+    }
+
+    public synchronized void clear() {
+        for (long[] segment : bits) Arrays.fill(segment, 0);
+        current = 0;
+        currentStartedAt = clock.getAsLong();
+        persist();
+    }
+
+    // ---------------- Internals ----------------
+
+    private static boolean allSet(long[] segment, int h1, int h2) {
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, SEGMENT_BITS);
+            if ((segment[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Advances one segment per elapsed ROTATION_MS, clearing the segment it reuses. */
+    private void rotateIfDue() {
+        long now = clock.getAsLong();
+        if (now < currentStartedAt) currentStartedAt = now; // clock moved back
+        int steps = 0;
+        while (now - currentStartedAt >= ROTATION_MS && steps < SEGMENTS) {
+            current = (current + 1) % SEGMENTS;
+            Arrays.fill(bits[current], 0);
+            currentStartedAt += ROTATION_MS;
+            steps++;
+        }
+        if (now - currentStartedAt >= ROTATION_MS) currentStartedAt = now; // idle for > SEGMENTS days
+        if (steps > 0) Log.d(TAG, "Rotated " + steps + " segment(s)");
+    }
+
+    /** FNV-1a 64 over the UTF-8 bytes, then a murmur3 finalizer to spread the bits. */
+    private static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION || in.readInt() != SEGMENTS || in.readInt() != SEGMENT_BITS) return;
+            current = Math.floorMod(in.readInt(), SEGMENTS);
+            currentStartedAt = in.readLong();
+            for (long[] segment : bits) {
+                for (int w = 0; w < WORDS; w++) segment[w] = in.readLong();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable filter", e);
+            for (long[] segment : bits) Arrays.fill(segment, 0);
+            current = 0;
+            currentStartedAt = clock.getAsLong();
+        }
+    }
+
+    /** Queues a write of the current state; the snapshot is taken when the write runs. */
+    private void persist() {
+        if (persistQueued) return;
+        persistQueued = true;
+        persistExecutor.execute(() -> {
+            long[][] snapshot = new long[SEGMENTS][];
+            int snapshotCurrent;
+            long snapshotStartedAt;
+            synchronized (this) {
+                persistQueued = false;
+                for (int i = 0; i < SEGMENTS; i++) snapshot[i] = bits[i].clone();
+                snapshotCurrent = current;
+                snapshotStartedAt = currentStartedAt;
+            }
+            save(snapshot, snapshotCurrent, snapshotStartedAt);
+        });
+    }
+
+    private void save(long[][] bits, int current, long currentStartedAt) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(SEGMENTS);
+            out.writeInt(SEGMENT_BITS);
+            out.writeInt(current);
+            out.writeLong(currentStartedAt);
+            for (long[] segment : bits) {
+                for (long word : segment) out.writeLong(word);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to save filter", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) Log.w(TAG, "Failed to replace " + file.getName());
+    }
+}
@@ -1,14 +1,31 @@
 package com.comp90018.contexttunes.domain;
 
+import java.util.Collections;
+import java.util.List;
+
 public class SpotifyPlaylist {
     public final String id;
     public final String name;
     public final String description;
-    public final String imageUrl;
+    public final String imageUrl;      // largest cover (images[0])
+    public final List<Image> images;   // all cover sizes, largest first; null in entries saved before
     public final String ownerName;
     public final int totalTracks;
     public final String externalUrl;
 
+    /** One cover variant; width / height are 0 when Spotify didn't report them. */
+    public static class Image {
+        public final String url;
+        public final int width;
+        public final int height;
+
+        public Image(String url, int width, int height) {
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
     public SpotifyPlaylist(
             String id,
             String name,
@@ -17,13 +34,43 @@ public class SpotifyPlaylist {
             String ownerName,
             int totalTracks,
             String externalUrl
+    ) {
+        this(id, name, description, imageUrl, Collections.emptyList(), ownerName, totalTracks, externalUrl);
+    }
+
+    public SpotifyPlaylist(
+            String id,
+            String name,
+            String description,
+            String imageUrl,
+            List<Image> images,
+            String ownerName,
+            int totalTracks,
+            String externalUrl
     ) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.imageUrl = imageUrl;
+        this.images = images;
         this.ownerName = ownerName;
         this.totalTracks = totalTracks;
         this.externalUrl = externalUrl;
     }
+
+    /**
+     * Smallest cover whose shorter side is at least targetPx, so a thumbnail doesn't download
+     * the 640 px original. Falls back to the largest known cover, then to imageUrl.
+     */
+    public String imageUrlFor(int targetPx) {
+        if (images == null || images.isEmpty()) return imageUrl;
+        Image best = null;
+        for (Image img : images) {
+            if (img == null || img.url == null || img.url.isEmpty()) continue;
+            int side = Math.min(img.width, img.height);
+            if (side <= 0) continue; // unknown size
+            if (side >= targetPx && (best == null || side < Math.min(best.width, best.height))) best = img;
+        }
+        return best != null ? best.url : imageUrl;
+    }
 }
@@ -0,0 +1,255 @@
+package com.comp90018.contexttunes.domain;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device album tempo index (BPM from Spotify audio features, filled by SpotifyAPI.indexTempos)
+ * used to re-rank results by how well they match the user's step cadence. Lookups are local only.
+ *
+ * Stored as two pairs of sorted parallel arrays instead of boxed maps:
+ *   ids / tempoById       sorted by album id  → tempoOf(id) is a binary search
+ *   tempos / idsByTempo   sorted by tempo     → idsInRange(lo, hi) is two binary searches
+ * Albums whose tempo could not be determined are kept with tempo 0 so they are not refetched,
+ * but are left out of the tempo-sorted arrays. A third array next to ids holds the order in
+ * which entries were added, so the oldest ones are evicted when the index is full.
+ *
+ * Persisted as a small binary file in filesDir. Thread-safe.
+ */
+public final class TempoIndex {
+
+    private static final String TAG = "TempoIndex";
+    private static final String FILE_NAME = "tempo_index.bin";
+    private static final int FILE_VERSION = 2; // v1 had no insertion order
+    private static final int MAX_ENTRIES = 5000;
+
+    public static final float UNKNOWN = 0f;          // indexed, but no tempo available
+    public static final float MIN_CADENCE_SPM = 60f; // below this the user isn't walking / running
+    public static final float MATCH_TOLERANCE_BPM = 8f;
+
+    private static volatile TempoIndex INSTANCE;
+
+    private final File file;
+
+    private String[] ids = new String[0];
+    private float[] tempoById = new float[0];
+    private int[] addedById = new int[0]; // insertion sequence, larger = newer
+    private int nextSeq = 0;
+    private float[] tempos = new float[0];
+    private String[] idsByTempo = new String[0];
+
+    /** Package-private for tests; the app uses {@link #getInstance}. */
+    TempoIndex(@NonNull File file) {
+        this.file = file;
+        load();
+    }
+
+    public static TempoIndex getInstance(@NonNull android.content.Context ctx) {
+        if (INSTANCE == null) {
+            synchronized (TempoIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new TempoIndex(new File(ctx.getApplicationContext().getFilesDir(), FILE_NAME));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public synchronized int size() { return ids.length; }
+
+    /** BPM of this album; {@link #UNKNOWN} if indexed without a tempo, NaN if not indexed. */
+    public synchronized float tempoOf(@NonNull String albumId) {
+        int i = Arrays.binarySearch(ids, albumId);
+        return i >= 0 ? tempoById[i] : Float.NaN;
+    }
+
+    /** The ids from this collection that have never been indexed. */
+    @NonNull
+    public synchronized List<String> missing(@NonNull Collection<String> albumIds) {
+        List<String> out = new ArrayList<>();
+        for (String id : albumIds) {
+            if (id != null && Arrays.binarySearch(ids, id) < 0 && !out.contains(id)) out.add(id);
+        }
+        return out;
+    }
+
+    /** Albums with a tempo in [lo, hi] BPM, slowest first. */
+    @NonNull
+    public synchronized List<String> idsInRange(float lo, float hi) {
+        int from = lowerBound(tempos, lo);
+        int to = lowerBound(tempos, Math.nextUp(hi));
+        return new ArrayList<>(Arrays.asList(idsByTempo).subList(from, Math.max(from, to)));
+    }
+
+    /**
+     * Adds or replaces tempos (use {@link #UNKNOWN} for albums without one) and persists.
+     * Beyond MAX_ENTRIES the least recently added albums are dropped.
+     */
+    public synchronized void putAll(@NonNull Map<String, Float> albumTempos) {
+        if (albumTempos.isEmpty()) return;
+        TreeMap<String, Entry> merged = new TreeMap<>();
+        for (int i = 0; i < ids.length; i++) merged.put(ids[i], new Entry(tempoById[i], addedById[i]));
+        for (Map.Entry<String, Float> e : albumTempos.entrySet()) {
+            if (e.getKey() != null) merged.put(e.getKey(), new Entry(e.getValue(), nextSeq++));
+        }
+        evictOldest(merged);
+        rebuild(merged);
+        save();
+        Log.d(TAG, "Indexed " + albumTempos.size() + " album(s), " + ids.length + " total");
+    }
+
+    /**
+     * Albums whose tempo matches the cadence (directly, at half time or at double time) move to
+     * the front, closest first; everything else keeps its order behind them. No-op when the
+     * cadence is too low to mean walking or running.
+     */
+    @NonNull
+    public List<SpotifyPlaylist> rerankByCadence(@NonNull List<SpotifyPlaylist> albums, float cadenceSpm) {
+        if (Float.isNaN(cadenceSpm) || cadenceSpm < MIN_CADENCE_SPM || albums.size() < 2) return albums;
+
+        Set<String> matching = new HashSet<>();
+        for (float target : new float[]{cadenceSpm, cadenceSpm / 2f, cadenceSpm * 2f}) {
+            matching.addAll(idsInRange(target - MATCH_TOLERANCE_BPM, target + MATCH_TOLERANCE_BPM));
+        }
+        if (matching.isEmpty()) return albums;
+
+        List<SpotifyPlaylist> matched = new ArrayList<>();
+        List<SpotifyPlaylist> rest = new ArrayList<>();
+        for (SpotifyPlaylist p : albums) {
+            if (p.id != null && matching.contains(p.id)) matched.add(p); else rest.add(p);
+        }
+        matched.sort((a, b) -> Float.compare(distance(tempoOf(a.id), cadenceSpm), distance(tempoOf(b.id), cadenceSpm)));
+        matched.addAll(rest);
+        Log.d(TAG, "Cadence " + Math.round(cadenceSpm) + " spm: " + (matched.size() - rest.size())
+                + "/" + albums.size() + " album(s) matched");
+        return matched;
+    }
+
+    /** BPM distance to the cadence, counting half- and double-time as a match. */
+    static float distance(float bpm, float cadenceSpm) {
+        if (Float.isNaN(bpm) || bpm <= 0) return Float.MAX_VALUE;
+        return Math.min(Math.abs(bpm - cadenceSpm),
+                Math.min(Math.abs(bpm * 2f - cadenceSpm), Math.abs(bpm / 2f - cadenceSpm)));
+    }
+
+    // ---------------- Internals ----------------
+
+    private static final class Entry {
+        final float tempo;
+        final int added;
+
+        Entry(Float tempo, int added) {
+            this.tempo = tempo == null ? UNKNOWN : tempo;
+            this.added = added;
+        }
+    }
+
+    private static void evictOldest(TreeMap<String, Entry> byId) {
+        int excess = byId.size() - MAX_ENTRIES;
+        if (excess <= 0) return;
+        List<String> byAge = new ArrayList<>(byId.keySet());
+        byAge.sort((a, b) -> Integer.compare(byId.get(a).added, byId.get(b).added));
+        for (int i = 0; i < excess; i++) byId.remove(byAge.get(i));
+    }
+
+    /** First index with a[i] >= key. */
+    private static int lowerBound(float[] a, float key) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private void rebuild(TreeMap<String, Entry> byId) {
+        int n = byId.size();
+        String[] newIds = new String[n];
+        float[] newTempoById = new float[n];
+        int[] newAddedById = new int[n];
+        int known = 0;
+        int i = 0;
+        for (Map.Entry<String, Entry> e : byId.entrySet()) {
+            newIds[i] = e.getKey();
+            newTempoById[i] = e.getValue().tempo;
+            newAddedById[i] = e.getValue().added;
+            if (newTempoById[i] > 0) known++;
+            i++;
+        }
+
+        // Sort positions of the known tempos by tempo
+        Integer[] order = new Integer[known];
+        int k = 0;
+        for (int j = 0; j < n; j++) if (newTempoById[j] > 0) order[k++] = j;
+        Arrays.sort(order, (a, b) -> Float.compare(newTempoById[a], newTempoById[b]));
+        float[] newTempos = new float[known];
+        String[] newIdsByTempo = new String[known];
+        for (int j = 0; j < known; j++) {
+            newTempos[j] = newTempoById[order[j]];
+            newIdsByTempo[j] = newIds[order[j]];
+        }
+
+        ids = newIds;
+        tempoById = newTempoById;
+        addedById = newAddedById;
+        tempos = newTempos;
+        idsByTempo = newIdsByTempo;
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION && version != 1) return;
+            int n = in.readInt();
+            TreeMap<String, Entry> byId = new TreeMap<>();
+            for (int i = 0; i < n; i++) {
+                String id = in.readUTF();
+                float tempo = in.readFloat();
+                int added = version == 1 ? 0 : in.readInt(); // v1: all equally old
+                byId.put(id, new Entry(tempo, added));
+                nextSeq = Math.max(nextSeq, added + 1);
+            }
+            rebuild(byId);
+            Log.d(TAG, "Loaded " + ids.length + " album tempos (" + tempos.length + " known)");
+        } catch (Exception e) {
+            Log.w(TAG, "Dropping unreadable tempo index", e);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeUTF(ids[i]);
+                out.writeFloat(tempoById[i]);
+                out.writeInt(addedById[i]);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to save tempo index", e);
+            return;
+        }
+        if (!tmp.renameTo(file)) Log.w(TAG, "Failed to replace " + file.getName());
+    }
+}
@@ -0,0 +1,239 @@
+package com.comp90018.contexttunes.services;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.comp90018.contexttunes.data.api.SpotifyAPI;
+import com.comp90018.contexttunes.data.api.SpotifyRequestScheduler;
+import com.comp90018.contexttunes.domain.AIPlaylistRecommender;
+import com.comp90018.contexttunes.domain.Context;
+import com.comp90018.contexttunes.domain.LocalQueryRecommender;
+import com.comp90018.contexttunes.domain.OfflineCatalog;
+import com.comp90018.contexttunes.domain.PlaylistResultsCache;
+import com.comp90018.contexttunes.domain.SearchRecommendation;
+import com.comp90018.contexttunes.domain.SeenAlbumsFilter;
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+import com.comp90018.contexttunes.utils.SettingsManager;
+
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Background warmer for the AI recommendation cache and the Spotify results store.
+ * Runs only while charging on an unmetered network. It predicts the contexts most likely in
+ * the current and next time-of-day bucket, resolves their AI queries and fetches their
+ * Spotify results, so most GO presses are answered from local data.
+ *
+ * Candidate contexts are past contexts from {@link LocalQueryRecommender} seen at that time of
+ * day. Their keys are exact, so they become genuine AI cache hits later; made-up contexts (e.g.
+ * a tagged place with unknown sensors) would almost never match a real key and only cost AI calls.
+ *
+ * Afterwards the results store is folded into the {@link OfflineCatalog} used without network.
+ */
+public class CacheWarmingJobService extends JobService {
+
+    private static final String TAG = "CacheWarmingJob";
+    private static final int JOB_ID = 1101;
+    private static final long PERIOD_MS = 3 * 60 * 60 * 1000L; // 3 h, one time-of-day bucket ahead
+    private static final int MAX_CONTEXTS = 6;                  // caps OpenAI spend per run
+    private static final long STEP_TIMEOUT_S = 20;
+    private static final String CATALOG_SEED_ASSET = "offline_catalog.json"; // optional bundled snapshot
+
+    @Nullable private volatile Thread worker;
+    private volatile boolean stopped;
+
+    /** Schedule the periodic warm-up once; no-op if it is already pending. */
+    public static void schedule(@NonNull android.content.Context ctx) {
+        JobScheduler scheduler = ctx.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(ctx, CacheWarmingJobService.class))
+                .setRequiresCharging(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setPeriodic(PERIOD_MS)
+                .build();
+        int result = scheduler.schedule(job);
+        Log.d(TAG, "Scheduled cache warming: " + (result == JobScheduler.RESULT_SUCCESS ? "ok" : "failed"));
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopped = false;
+        Thread t = new Thread(() -> {
+            boolean retry = false;
+            try {
+                warm();
+            } catch (Exception e) {
+                Log.e(TAG, "Cache warming failed", e);
+                retry = true;
+            }
+            if (!stopped) updateOfflineCatalog();
+            jobFinished(params, retry && !stopped);
+        }, TAG);
+        worker = t;
+        t.start();
+        return true; // work continues on the worker thread
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        stopped = true; // constraints lost (unplugged / left Wi-Fi)
+        Thread t = worker;
+        if (t != null) t.interrupt();
+        return true;
+    }
+
+    // ---------------- Offline catalog ----------------
+
+    private void updateOfflineCatalog() {
+        android.content.Context app = getApplicationContext();
+        OfflineCatalog catalog = OfflineCatalog.getInstance(app);
+        if (catalog.size() == 0) {
+            try (Reader seed = new InputStreamReader(app.getAssets().open(CATALOG_SEED_ASSET), StandardCharsets.UTF_8)) {
+                catalog.importJson(seed);
+            } catch (FileNotFoundException e) {
+                // no bundled snapshot
+            } catch (Exception e) {
+                Log.w(TAG, "Offline catalog seed import failed", e);
+            }
+        }
+        catalog.rebuildFrom(PlaylistResultsCache.getInstance(app).snapshot());
+    }
+
+    // ---------------- Warming ----------------
+
+    private void warm() throws InterruptedException {
+        android.content.Context app = getApplicationContext();
+        SettingsManager settings = new SettingsManager(app);
+        if (!settings.isAIMode()) return;
+
+        List<Context> contexts = predictContexts(app);
+        Log.d(TAG, "Warming " + contexts.size() + " predicted contexts");
+
+        AIPlaylistRecommender ai = new AIPlaylistRecommender(app);
+        ai.setStreamingEnabled(false); // nobody is waiting for the early query
+        SpotifyAPI spotify = new SpotifyAPI(app);
+        spotify.setSeenFilter(SeenAlbumsFilter.getInstance(app)); // warm albums the user hasn't seen
+        PlaylistResultsCache results = PlaylistResultsCache.getInstance(app);
+
+        int aiWarmed = 0, spotifyWarmed = 0;
+        try {
+            for (Context ctx : contexts) {
+                if (stopped) break;
+                SearchRecommendation rec = awaitRecommendation(ai, ctx);
+                if (rec == null || rec.searchQuery == null || rec.searchQuery.isEmpty()) continue;
+                aiWarmed++;
+
+                Set<String> queries = new LinkedHashSet<>();
+                queries.add(rec.searchQuery);
+                for (SearchRecommendation alt : rec.getAlternatives()) {
+                    if (alt.searchQuery != null && !alt.searchQuery.isEmpty()) queries.add(alt.searchQuery);
+                }
+                for (String q : queries) {
+                    if (stopped) break;
+                    if (results.contains(q, SpotifyAPI.DEFAULT_LIMIT)) continue;
+                    List<SpotifyPlaylist> playlists = awaitSpotify(spotify, q);
+                    if (playlists != null) {
+                        results.put(q, SpotifyAPI.DEFAULT_LIMIT, playlists);
+                        spotifyWarmed++;
+                    }
+                }
+            }
+        } finally {
+            spotify.shutdown();
+        }
+        Log.d(TAG, "Warm-up done: " + aiWarmed + " AI answers, " + spotifyWarmed + " result lists"
+                + (stopped ? " (stopped early)" : ""));
+    }
+
+    /** History contexts for the current bucket first, then the next one. */
+    @NonNull
+    private static List<Context> predictContexts(@NonNull android.content.Context app) {
+        Calendar now = Calendar.getInstance();
+        int hour = now.get(Calendar.HOUR_OF_DAY);
+        Set<String> buckets = new LinkedHashSet<>();
+        buckets.add(timeOfDayForHour(hour));
+        buckets.add(timeOfDayForHour((hour + 3) % 24));
+
+        Map<String, Context> byKey = new LinkedHashMap<>();
+        LocalQueryRecommender history = LocalQueryRecommender.getInstance(app);
+        for (String tod : buckets) {
+            for (Context c : history.frequentContexts(tod, MAX_CONTEXTS)) {
+                byKey.put(c.normalizedKey(), c);
+            }
+        }
+
+        List<Context> out = new ArrayList<>(byKey.values());
+        return out.size() > MAX_CONTEXTS ? out.subList(0, MAX_CONTEXTS) : out;
+    }
+
+    /** Same buckets as HomeFragment.computeTimeOfDay(). */
+    @NonNull
+    static String timeOfDayForHour(int h) {
+        if (h >= 5 && h < 12)  return "morning";
+        if (h >= 12 && h < 17) return "afternoon";
+        if (h >= 17 && h < 22) return "evening";
+        return "night";
+    }
+
+    // Callbacks land on the main thread; the worker just blocks until they do.
+
+    @Nullable
+    private static SearchRecommendation awaitRecommendation(@NonNull AIPlaylistRecommender ai,
+                                                            @NonNull Context ctx)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<SearchRecommendation> out = new AtomicReference<>();
+        ai.getSearchRecommendation(ctx, new AIPlaylistRecommender.AICallback() {
+            @Override public void onSuccess(@NonNull SearchRecommendation rec) {
+                out.set(rec);
+                done.countDown();
+            }
+            @Override public void onError(@NonNull Exception e) {
+                Log.w(TAG, "AI warm-up failed for " + ctx.normalizedKey() + ": " + e.getMessage());
+                done.countDown();
+            }
+        });
+        done.await(STEP_TIMEOUT_S, TimeUnit.SECONDS);
+        return out.get();
+    }
+
+    @Nullable
+    private static List<SpotifyPlaylist> awaitSpotify(
+            @NonNull SpotifyAPI spotify, @NonNull String query) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<List<SpotifyPlaylist>> out = new AtomicReference<>();
+        spotify.searchPlaylists(query, SpotifyAPI.DEFAULT_LIMIT, SpotifyRequestScheduler.Priority.WARM,
+                new SpotifyAPI.PlaylistCallback() {
+                    @Override public void onSuccess(List<SpotifyPlaylist> playlists) {
+                        out.set(playlists);
+                        done.countDown();
+                    }
+                    @Override public void onError(String error) {
+                        Log.w(TAG, "Spotify warm-up failed for '" + query + "': " + error);
+                        done.countDown();
+                    }
+                });
+        done.await(STEP_TIMEOUT_S, TimeUnit.SECONDS);
+        return out.get();
+    }
+}
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.util.Log;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.auth.CognitoCachingCredentialsProvider;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.rekognition.AmazonRekognitionClient;
@@ -15,6 +16,7 @@ import com.comp90018.contexttunes.BuildConfig;
 import com.comp90018.contexttunes.data.viewModel.ImageViewModel;
 import com.comp90018.contexttunes.domain.ImageLabels;
 import com.comp90018.contexttunes.utils.ImageLabelsHasher;
+import com.comp90018.contexttunes.utils.NetworkTelemetry;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
@@ -103,7 +105,20 @@ public class ImageAnalyser {
                     .withMinConfidence(MIN_CONFIDENCE);
 
             // Call Rekognition (network I/O, must be off main thread)
-            DetectLabelsResult result = getClient().detectLabels(request);
+            NetworkTelemetry.CallRecord telemetry = new NetworkTelemetry.CallRecord();
+            telemetry.requestBytes = imageBytes.length;
+            long startNanos = System.nanoTime();
+            DetectLabelsResult result;
+            try {
+                result = getClient().detectLabels(request);
+                telemetry.status = 200;
+            } catch (AmazonServiceException e) {
+                telemetry.status = e.getStatusCode();
+                throw e;
+            } finally {
+                telemetry.totalMs = NetworkTelemetry.sinceMs(startNanos);
+                NetworkTelemetry.record(NetworkTelemetry.REKOGNITION_LABELS, telemetry);
+            }
             List<Label> labels = result.getLabels();
 
             ImageLabels imageLabels = new ImageLabels();
@@ -13,6 +13,8 @@ import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.Bitmap;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -21,7 +23,6 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
-import com.bumptech.glide.Glide;
 import com.comp90018.contexttunes.BuildConfig;
 import com.comp90018.contexttunes.MainActivity;
 import com.comp90018.contexttunes.R;
@@ -33,10 +34,15 @@ import com.comp90018.contexttunes.data.weather.WeatherService;
 import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
 import com.comp90018.contexttunes.databinding.FragmentHomeBinding;
 import com.comp90018.contexttunes.domain.Context;
+import com.comp90018.contexttunes.domain.LocalQueryRecommender;
+import com.comp90018.contexttunes.domain.OfflineCatalog;
+import com.comp90018.contexttunes.domain.PlaylistResultsCache;
 import com.comp90018.contexttunes.domain.SearchRecommendation;
+import com.comp90018.contexttunes.domain.SeenAlbumsFilter;
 import com.comp90018.contexttunes.data.viewModel.ImageViewModel;
 import com.comp90018.contexttunes.data.api.SpotifyAPI;
 import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+import com.comp90018.contexttunes.domain.TempoIndex;
 import com.comp90018.contexttunes.utils.PermissionManager;
 import com.comp90018.contexttunes.utils.PlaylistOpener;
 import com.comp90018.contexttunes.utils.SavedPlaylistsManager;
@@ -44,18 +50,25 @@ import com.comp90018.contexttunes.utils.SettingsManager;
 import com.comp90018.contexttunes.domain.ImageLabels;
 import com.comp90018.contexttunes.services.SpeedSensorService;
 import com.comp90018.contexttunes.utils.AppEvents;
+import com.comp90018.contexttunes.utils.ArtworkLoader;
 import com.comp90018.contexttunes.utils.LocationContextHelper;
+import com.comp90018.contexttunes.utils.NetworkTelemetry;
 import com.comp90018.contexttunes.data.viewModel.HomeStateViewModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.time.LocalTime;
 import java.util.Locale;
 
 public class HomeFragment extends Fragment {
     private static final String TAG = "HomeFragment";
     private static final int DEFAULT_WINDOW_SECONDS = 20;
-    private static final int SPOTIFY_LIMIT = 5;
+    private static final int SPOTIFY_LIMIT = SpotifyAPI.DEFAULT_LIMIT;
+    private static final int CATALOG_CANDIDATES = 3 * SPOTIFY_LIMIT; // room to skip recently shown albums
     private static final long WEATHER_MAX_AGE_MS = 45 * 60 * 1000L; // 45 min
 
     private boolean isCurrentlyLoading = false;
@@ -66,6 +79,10 @@ public class HomeFragment extends Fragment {
     private LocationSensor locationSensor;
     private LocationContextHelper locationHelper;
     private AIPlaylistRecommender aiRecommender;
+    private LocalQueryRecommender localRecommender;
+    private PlaylistResultsCache playlistResultsCache;
+    private TempoIndex tempoIndex;
+    private OfflineCatalog offlineCatalog;
     private SpotifyAPI spotifyAPI;
     private WeatherService weatherService;
 
@@ -81,6 +98,15 @@ public class HomeFragment extends Fragment {
     private static final int LABELS_TIMEOUT_MS = 8000; // hard stop for Rekognition
     @Nullable private Runnable windowWatchdog = null;
 
+    // ---- speculative AI (provisional context sent early in the window) ----
+    private boolean speculationStarted = false;
+    private boolean weatherReadyThisRun = false;         // weather delivered since this window began
+    @Nullable private String speculativeKey = null;      // normalizedKey() of the provisional context
+    private boolean speculativeLocationReady = false;    // location resolved during this window
+    @Nullable private String speculativePlaceTag = null;
+    @Nullable private List<String> speculativeNearby = null;
+    private int speculationHits = 0;
+    private int speculationMisses = 0;
 
     // live values from SpeedSensorService (if running)
     @Nullable private Float  liveSpeedKmh   = null;
@@ -105,6 +131,12 @@ public class HomeFragment extends Fragment {
 
     @Nullable private Bitmap imageUsedLastRun = null;
     private boolean useImageLabelsThisRun = false;
+    private boolean isRegenerateRun = false; // Regenerate may use a queued alternative query
+
+    // tiered serving: offline results after the latency budget, upgraded when the AI answers
+    private int servingRun = 0;                         // bumped per proceedWithContext; stale callbacks compare against it
+    private boolean userInteractedSinceRender = false;  // play/save on the current results blocks an upgrade
+    @Nullable private Runnable servingDeadline = null;
 
 
     // ===================== LIFECYCLE =====================
@@ -151,8 +183,18 @@ public class HomeFragment extends Fragment {
         locationSensor    = new LocationSensor(requireContext());
         locationHelper    = new LocationContextHelper(requireContext());
         weatherService    = new WeatherService(requireContext());
-        aiRecommender     = new AIPlaylistRecommender();
-        spotifyAPI        = new SpotifyAPI(BuildConfig.SPOTIFY_ACCESS_TOKEN);
+        aiRecommender     = new AIPlaylistRecommender(requireContext());
+        aiRecommender.setStreamingEnabled(settingsManager.isAIStreamingEnabled());
+        localRecommender  = LocalQueryRecommender.getInstance(requireContext());
+        LocalQueryRecommender history = localRecommender;
+        aiRecommender.setCompletionListener((c, rec) -> { // learn for offline use, fresh answers only
+            if (rec.searchQuery != null && !rec.searchQuery.isEmpty()) history.record(c, rec.searchQuery);
+        });
+        playlistResultsCache = PlaylistResultsCache.getInstance(requireContext());
+        tempoIndex = TempoIndex.getInstance(requireContext());
+        offlineCatalog = OfflineCatalog.getInstance(requireContext());
+        spotifyAPI        = new SpotifyAPI(requireContext());
+        spotifyAPI.setSeenFilter(SeenAlbumsFilter.getInstance(requireContext())); // no repeats across Regenerates
 
         // Header
         binding.welcomeTitle.setText("Welcome back!");
@@ -196,8 +238,14 @@ public class HomeFragment extends Fragment {
         });
 
         // GO / Regenerate → run the 20s window + context + AI + Spotify
-        binding.btnGo.setOnClickListener(v -> beginWindow(DEFAULT_WINDOW_SECONDS));
-        binding.btnRegenerate.setOnClickListener(v -> beginWindow(DEFAULT_WINDOW_SECONDS));
+        binding.btnGo.setOnClickListener(v -> {
+            isRegenerateRun = false;
+            beginWindow(DEFAULT_WINDOW_SECONDS);
+        });
+        binding.btnRegenerate.setOnClickListener(v -> {
+            isRegenerateRun = true;
+            beginWindow(DEFAULT_WINDOW_SECONDS);
+        });
 
 
         // restore previously generated playlists/state when coming back from other tabs
@@ -314,6 +362,8 @@ public class HomeFragment extends Fragment {
                 homeStateVM.setWeatherState(ws); // persist in VM
                 homeStateVM.setWeatherFetchedAt(System.currentTimeMillis()); // track freshness
                 updateWeatherStatus(currentWeather);
+                weatherReadyThisRun = true;
+                if (isCurrentlyLoading) maybeStartSpeculativeAI(); // this window's weather is in
             });
         });
     }
@@ -349,7 +399,10 @@ public class HomeFragment extends Fragment {
     private void beginWindow(int seconds) {
         // pre-UI → loading
         onGenerationStart();
+        servingRun++;            // late AI upgrades from the previous run must not land now
+        cancelServingDeadline();
 
+        weatherReadyThisRun = false; // speculation waits for this window's weather
         if (settingsManager.isLocationEnabled()) {
             ensureLocationAndFetchWeather();   // this will show the toast exactly on GO
         }
@@ -372,6 +425,11 @@ public class HomeFragment extends Fragment {
 
         // reset join-state
         speedReady  = !settingsManager.isAccelerometerEnabled();
+        speculationStarted = false;
+        speculativeKey = null;
+        speculativeLocationReady = false;
+        speculativePlaceTag = null;
+        speculativeNearby = null;
 
         // IMPORTANT: Only run labels if there’s a *new* image this run
         if (useImageLabelsThisRun) {
@@ -383,6 +441,55 @@ public class HomeFragment extends Fragment {
 
         // Regardless, we arm the same-duration watchdog → single source of truth UX
         armWatchdog(seconds);
+
+        // Everything but the activity label is usually known once weather arrives → ask the AI in parallel
+        maybeStartSpeculativeAI();
+    }
+
+    /**
+     * Send the AI request with a provisional context (current light, weather, time, place and
+     * labels, plus the last known activity) instead of waiting for the window to end.
+     * The answer lands in the recommender's cache / in-flight table, so proceedWithContext
+     * reuses it for free when the final context matches and only re-issues when it differs
+     * (typically because the measured activity changed).
+     * Not sent until this window's weather has arrived: a provisional context carrying the
+     * previous run's weather would almost always miss and pay for a second completion. Without
+     * weather (location off or not granted) there is no speculation at all. Neither is there on
+     * Regenerate, which never uses the cached answer a speculative call would produce.
+     */
+    private void maybeStartSpeculativeAI() {
+        if (speculationStarted || !labelsReady) return; // wait for new-image labels first
+        if (!weatherReadyThisRun || currentWeather == WeatherState.UNKNOWN) return;
+        if (isRegenerateRun) return; // Regenerate takes a queued alternative or a cache-bypassing completion
+        if (!settingsManager.isAIMode() || !settingsManager.isSpeculativeAIEnabled()) return;
+        speculationStarted = true;
+
+        final String timeOfDay = computeTimeOfDay();
+        final String act = (liveActivity != null && !liveActivity.isEmpty()) ? liveActivity
+                : (lastActivityLabel == null || lastActivityLabel.isEmpty()) ? "still" : lastActivityLabel;
+
+        resolveLocation((placeTag, nearby) -> {
+            speculativePlaceTag = placeTag;
+            speculativeNearby = nearby;
+            speculativeLocationReady = true;
+            if (binding == null) return;
+
+            Context provisional = new Context(
+                    currentLightBucket, timeOfDay, act, currentWeather,
+                    placeTag, (nearby == null ? new ArrayList<>() : nearby),
+                    topImageLabelStrings(3)
+            );
+            speculativeKey = provisional.normalizedKey();
+            Log.d(TAG, "Speculative AI request for " + speculativeKey);
+            aiRecommender.getSearchRecommendation(provisional, new AIPlaylistRecommender.AICallback() {
+                @Override public void onSuccess(@NonNull SearchRecommendation rec) {
+                    Log.d(TAG, "Speculative AI ready: " + rec.searchQuery);
+                }
+                @Override public void onError(@NonNull Exception e) {
+                    Log.w(TAG, "Speculative AI failed; final context will retry", e);
+                }
+            });
+        });
     }
 
     private void maybeStartImageLabelsWork() {
@@ -410,6 +517,7 @@ public class HomeFragment extends Fragment {
             if (!labelsReady) {
                 Log.w(TAG, "Labels timeout — proceeding without image labels.");
                 labelsReady = true;
+                maybeStartSpeculativeAI();
                 tryProceedIfAllReady();
             }
         };
@@ -421,6 +529,7 @@ public class HomeFragment extends Fragment {
                 labelsReady = true;
                 h.removeCallbacks(timeout);
                 imageVM.getImageLabels().removeObservers(getViewLifecycleOwner());
+                maybeStartSpeculativeAI();
                 tryProceedIfAllReady();
             }
         });
@@ -515,21 +624,30 @@ public class HomeFragment extends Fragment {
     };
 
     private void resolveLocationThenProceed(String timeOfDay, String activity) {
+        if (speculativeLocationReady) {
+            // Already resolved earlier in this window for the speculative request
+            updateLocationCard(speculativePlaceTag, speculativeNearby);
+            buildContextAndProceed(timeOfDay, activity, speculativePlaceTag, speculativeNearby);
+            return;
+        }
+        resolveLocation((placeTag, nearby) -> {
+            updateLocationCard(placeTag, nearby);
+            buildContextAndProceed(timeOfDay, activity, placeTag, nearby);
+        });
+    }
+
+    /** Current place tag / nearby types, or (null, null) when location is off or unavailable. */
+    private void resolveLocation(@NonNull LocationContextHelper.LocationContextCallback cb) {
         if (settingsManager.isLocationEnabled() && PermissionManager.hasAnyLocation(requireContext())) {
             locationSensor.getCurrentLocation(loc -> {
                 if (loc == null) {
-                    updateLocationCard(null, null);
-                    buildContextAndProceed(timeOfDay, activity, null, null);
+                    cb.onLocationContextReady(null, new ArrayList<>());
                 } else {
-                    locationHelper.getLocationContext(loc, (placeTag, nearby) -> {
-                        updateLocationCard(placeTag, nearby);
-                        buildContextAndProceed(timeOfDay, activity, placeTag, nearby);
-                    });
+                    locationHelper.getLocationContext(loc, cb);
                 }
             });
         } else {
-            updateLocationCard(null, null);
-            buildContextAndProceed(timeOfDay, activity, null, null);
+            cb.onLocationContextReady(null, new ArrayList<>());
         }
     }
 
@@ -574,25 +692,133 @@ public class HomeFragment extends Fragment {
         }
 
         if (!settingsManager.isAIMode()) {
-            runSpotify(fallbackQuery(ctx));
+            runSpotify(offlineQuery(ctx));
             imageUsedLastRun = imageVM.getCapturedImage().getValue();// skip AI, deterministic fallback
             currentImageLabels = null;
             return;
         }
 
+        if (speculativeKey != null) {
+            if (speculativeKey.equals(ctx.normalizedKey())) speculationHits++; else speculationMisses++;
+            Log.d(TAG, "Speculation " + (speculativeKey.equals(ctx.normalizedKey()) ? "reused" : "re-issued")
+                    + " (hits=" + speculationHits + ", misses=" + speculationMisses + ")");
+        }
+
+        // Regenerate: take the next unused candidate from the last completion for this context
+        if (isRegenerateRun) {
+            SearchRecommendation alt = aiRecommender.pollAlternative(ctx);
+            if (alt != null) {
+                Log.d(TAG, "Regenerate using queued alternative: " + alt.searchQuery);
+                runSpotify(alt.searchQuery);
+                return;
+            }
+        }
+
         // 2) Proceed → AI stub (Context → search_query + reason) → Spotify
-        aiRecommender.getSearchRecommendation(ctx, new AIPlaylistRecommender.AICallback() {
-            @Override public void onSuccess(@NonNull SearchRecommendation rec) {
-                String query = (rec.searchQuery == null || rec.searchQuery.isEmpty())
-                        ? fallbackQuery(ctx)
-                        : rec.searchQuery;
-                runSpotify(query);
+        // (If the speculative request had the same context, this is a cache hit or joins it in flight.)
+        AIServingCallback aiCallback = new AIServingCallback(ctx, ++servingRun);
+        userInteractedSinceRender = false;
+        if (settingsManager.isTieredServingEnabled()) {
+            cancelServingDeadline();
+            servingDeadline = aiCallback::serveOfflineTier;
+            handler.postDelayed(servingDeadline, settingsManager.getAILatencyBudgetMs());
+        }
+        // Regenerate with no queued alternative left → fresh completion, never the cached query again
+        aiRecommender.getSearchRecommendation(ctx, aiCallback, isRegenerateRun);
+    }
+
+    private void cancelServingDeadline() {
+        if (servingDeadline != null) {
+            handler.removeCallbacks(servingDeadline);
+            servingDeadline = null;
+        }
+    }
+
+    /**
+     * Routes the AI answer for one proceedWithContext run to Spotify.
+     * Tiered mode: if the latency budget expires first, offline results are rendered straight
+     * away and the AI answer later replaces them, unless the user has already played/saved one
+     * of them or started a new run.
+     */
+    private final class AIServingCallback implements AIPlaylistRecommender.AIStreamCallback {
+        private final Context ctx;
+        private final int run;
+        private boolean spotifyStarted = false;   // early query and final result both land here
+        @Nullable private String offlineTierQuery = null; // set when the budget expired first
+        private boolean upgradeHandled = false;
+
+        AIServingCallback(@NonNull Context ctx, int run) {
+            this.ctx = ctx;
+            this.run = run;
+        }
+
+        /** Budget expired before the AI answered → render the offline tier now. */
+        void serveOfflineTier() {
+            servingDeadline = null;
+            if (spotifyStarted || run != servingRun || getActivity() == null) return;
+            spotifyStarted = true;
+            offlineTierQuery = offlineQuery(ctx);
+            Log.d(TAG, "AI over " + settingsManager.getAILatencyBudgetMs() + " ms budget, serving offline tier: " + offlineTierQuery);
+            runSpotify(offlineTierQuery);
+        }
+
+        @Override public void onSearchQueryReady(@NonNull String searchQuery) {
+            // reason and alternatives are still streaming; no need to wait for them
+            deliver(searchQuery, Collections.emptyList());
+        }
+
+        @Override public void onSuccess(@NonNull SearchRecommendation rec) {
+            boolean hasQuery = rec.searchQuery != null && !rec.searchQuery.isEmpty();
+            deliver(hasQuery ? rec.searchQuery : null, hasQuery ? alternativeQueries(rec) : Collections.emptyList());
+        }
+
+        @Override public void onError(@NonNull Exception e) {
+            if (spotifyStarted) return; // offline tier is already on screen
+            spotifyStarted = true;
+            if (run != servingRun || getActivity() == null) return; // a newer run owns the screen
+            cancelServingDeadline();
+            Log.e(TAG, "AI failed, fallback", e);
+            if (aiRecommender.isInFallbackMode()) {
+                Toast.makeText(requireContext(),
+                        "AI unavailable — using offline suggestions", Toast.LENGTH_SHORT).show();
             }
-            @Override public void onError(@NonNull Exception e) {
-                Log.e(TAG, "AI failed, fallback", e);
-                runSpotify(fallbackQuery(ctx));
+            runSpotify(offlineQuery(ctx));
+        }
+
+        private void deliver(@Nullable String aiQuery, @NonNull List<String> alternatives) {
+            if (offlineTierQuery != null) {
+                upgrade(aiQuery, alternatives);
+                return;
             }
-        });
+            if (spotifyStarted) return;
+            spotifyStarted = true;
+            if (run != servingRun || getActivity() == null) return; // a newer run owns the screen
+            cancelServingDeadline();
+            if (aiQuery != null) runSpotify(aiQuery, alternatives);
+            else runSpotify(fallbackQuery(ctx));
+        }
+
+        private void upgrade(@Nullable String aiQuery, @NonNull List<String> alternatives) {
+            if (upgradeHandled || aiQuery == null) return;
+            upgradeHandled = true;
+            if (run != servingRun || getActivity() == null) return; // a newer run owns the screen
+            if (userInteractedSinceRender) {
+                Log.d(TAG, "Discarding AI upgrade (" + aiQuery + "): user already interacted");
+                return;
+            }
+            if (aiQuery.equalsIgnoreCase(offlineTierQuery)) return; // same results, nothing to swap
+            Log.d(TAG, "Upgrading offline tier to AI query: " + aiQuery);
+            runSpotify(aiQuery, alternatives);
+        }
+    }
+
+    /** The other candidate queries from the same AI completion, best first. */
+    private static List<String> alternativeQueries(@NonNull SearchRecommendation rec) {
+        List<String> out = new ArrayList<>();
+        for (SearchRecommendation alt : rec.getAlternatives()) {
+            if (alt.searchQuery != null && !alt.searchQuery.isEmpty()) out.add(alt.searchQuery);
+        }
+        return out;
     }
 
     private List<String> topImageLabelStrings(int n) {
@@ -629,10 +855,28 @@ public class HomeFragment extends Fragment {
     }
 
     private void runSpotify(@NonNull String query) {
-        spotifyAPI.searchPlaylists(query, SPOTIFY_LIMIT, new SpotifyAPI.PlaylistCallback() {
+        runSpotify(query, Collections.emptyList());
+    }
+
+    /**
+     * @param alternatives other queries from the same AI completion; when there are any, they are
+     *                     searched alongside 'query' and the rankings fused (one request each)
+     */
+    private void runSpotify(@NonNull String query, @NonNull List<String> alternatives) {
+        // Regenerate that lands on the query already on screen → next window of the same search
+        boolean moreOfSame = isRegenerateRun && playlistsGenerated
+                && query.equalsIgnoreCase(homeStateVM.getLastQuery().getValue());
+        homeStateVM.setLastQuery(query);
+        SpotifyAPI.PlaylistCallback render = new SpotifyAPI.PlaylistCallback() {
             @Override
-            public void onSuccess(List<SpotifyPlaylist> playlists) {
+            public void onSuccess(List<SpotifyPlaylist> results) {
                 if (getActivity() == null) return;
+                // Walking / running: tempo matches first (local index only, no network)
+                List<SpotifyPlaylist> playlists = liveCadenceSpm != null
+                        ? tempoIndex.rerankByCadence(results, liveCadenceSpm) : results;
+                spotifyAPI.indexTempos(results, tempoIndex); // background; ready for the next run
+                ArtworkLoader.prefetch(requireContext(), playlists); // covers download while the UI switches
+                SeenAlbumsFilter.getInstance(requireContext()).markSeen(playlists);
                 requireActivity().runOnUiThread(() -> {
                     spotifyPlaylists = playlists;
                     playlistsGenerated = true;
@@ -670,6 +914,8 @@ public class HomeFragment extends Fragment {
                     populateContextChipsFor(lastContext != null ? lastContext : ctxFromLastKnown()); // render chips from last known
                     populateSpotifyPlaylistCards();
                     binding.playlistEmptyText.setVisibility(playlists.isEmpty() ? View.VISIBLE : View.GONE);
+
+                    if (BuildConfig.DEBUG) NetworkTelemetry.logSummary();
                 });
             }
 
@@ -712,7 +958,106 @@ public class HomeFragment extends Fragment {
                     }
                 });
             }
-        });
+        };
+
+        if (moreOfSame) {
+            // Usually already prefetched by SpotifyAPI after the previous search
+            Log.d(TAG, "Regenerate with the same query, fetching more of '" + query + "'");
+            spotifyAPI.searchMore(query, SPOTIFY_LIMIT, render);
+            return;
+        }
+
+        // Pre-fetched by the background warmer → render without network, once, and only if none
+        // of it has been shown already (otherwise the filtered network search does better)
+        List<SpotifyPlaylist> warmed = playlistResultsCache.take(query, SPOTIFY_LIMIT);
+        if (warmed != null && unseen(warmed).size() == warmed.size()) {
+            Log.d(TAG, "Serving '" + query + "' from the results store (hits=" + playlistResultsCache.getHitCount() + ")");
+            render.onSuccess(warmed);
+            spotifyAPI.prefetchNext(query, SPOTIFY_LIMIT); // a Regenerate can still be instant
+            return;
+        }
+
+        // No network → answer from the on-device catalog instead of waiting for a failure
+        if (!isOnline()) {
+            List<SpotifyPlaylist> local = preferUnseen(offlineCatalog.lookup(query, CATALOG_CANDIDATES), SPOTIFY_LIMIT);
+            if (!local.isEmpty()) {
+                Log.d(TAG, "Offline, serving '" + query + "' from the catalog (" + offlineCatalog.size() + " albums)");
+                render.onSuccess(local);
+                return;
+            }
+        }
+
+        SpotifyAPI.PlaylistCallback withOfflineFallback = new SpotifyAPI.PlaylistCallback() {
+            @Override
+            public void onSuccess(List<SpotifyPlaylist> playlists) {
+                render.onSuccess(playlists);
+            }
+
+            @Override
+            public void onError(String error) {
+                List<SpotifyPlaylist> local = preferUnseen(offlineCatalog.lookup(query, CATALOG_CANDIDATES), SPOTIFY_LIMIT);
+                if (!local.isEmpty()) {
+                    Log.w(TAG, "Spotify failed (" + error + "), serving '" + query + "' from the offline catalog");
+                    render.onSuccess(local);
+                } else {
+                    render.onError(error);
+                }
+            }
+        };
+        if (alternatives.isEmpty()) {
+            spotifyAPI.searchPlaylists(query, SPOTIFY_LIMIT, withOfflineFallback);
+        } else {
+            // AI gave several candidates → search them in parallel and fuse the rankings
+            List<String> queries = new ArrayList<>();
+            queries.add(query);
+            queries.addAll(alternatives);
+            spotifyAPI.searchMulti(queries, SPOTIFY_LIMIT, withOfflineFallback);
+        }
+    }
+
+    /** Albums not shown to the user in the last few days (see {@link SeenAlbumsFilter}). */
+    private List<SpotifyPlaylist> unseen(@NonNull List<SpotifyPlaylist> albums) {
+        SeenAlbumsFilter seen = SeenAlbumsFilter.getInstance(requireContext());
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        for (SpotifyPlaylist p : albums) {
+            if (p != null && (p.id == null || !seen.mightContain(p.id))) out.add(p);
+        }
+        return out;
+    }
+
+    /**
+     * Up to 'limit' distinct albums (by id), unseen ones first; seen ones only backfill
+     * (better a repeat than a short list).
+     */
+    private List<SpotifyPlaylist> preferUnseen(@NonNull List<SpotifyPlaylist> albums, int limit) {
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        for (List<SpotifyPlaylist> pass : Arrays.asList(unseen(albums), albums)) {
+            for (SpotifyPlaylist p : pass) {
+                if (out.size() >= limit) return out;
+                if (p != null && (p.id == null ? !out.contains(p) : ids.add(p.id))) out.add(p);
+            }
+        }
+        return out;
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager cm = requireContext().getSystemService(ConnectivityManager.class);
+        NetworkCapabilities caps = cm == null ? null : cm.getNetworkCapabilities(cm.getActiveNetwork());
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    /**
+     * Best answer without the network: the query of the most similar past context from the
+     * on-device history, else the hard-coded fallback.
+     */
+    private String offlineQuery(@NonNull Context ctx) {
+        String local = localRecommender.suggest(ctx);
+        if (local != null) {
+            Log.d(TAG, "Using local nearest-neighbour query: " + local);
+            return local;
+        }
+        return fallbackQuery(ctx);
     }
 
     // Fallback query if AI fails or returns empty
@@ -851,17 +1196,15 @@ public class HomeFragment extends Fragment {
             com.google.android.material.button.MaterialButton btnSave =
                     card.findViewById(R.id.btnSave); // bookmark toggle
 
-            if (playlist.imageUrl != null && !playlist.imageUrl.isEmpty()) {
-                Glide.with(requireContext())
-                        .load(playlist.imageUrl)
-                        .into(playlistImage);
-            }
+            ArtworkLoader.load(playlistImage, playlist);
 
             playlistName.setText(playlist.name);
             playlistMeta.setText(playlist.ownerName + " • " + playlist.totalTracks + " tracks");
 
             btnPlay.setOnClickListener(v -> {
                 Log.d(TAG, "Opening playlist: " + playlist.externalUrl);
+                userInteractedSinceRender = true;
+                localRecommender.markEngaged(homeStateVM.getLastQuery().getValue());
                 PlaylistOpener.openPlaylist(requireContext(), playlist);
             });
 
@@ -869,12 +1212,14 @@ public class HomeFragment extends Fragment {
             boolean isSaved = saved.isSpotifyPlaylistSaved(playlist);
             updateSaveButtonIcon(btnSave, isSaved);
             btnSave.setOnClickListener(v -> {
+                userInteractedSinceRender = true;
                 boolean currentlySaved = saved.isSpotifyPlaylistSaved(playlist);
                 if (currentlySaved) {
                     saved.unsaveSpotifyPlaylist(playlist);
                     Toast.makeText(requireContext(), "Playlist removed from saved", Toast.LENGTH_SHORT).show();
                 } else {
                     saved.saveSpotifyPlaylist(playlist);
+                    localRecommender.markEngaged(homeStateVM.getLastQuery().getValue());
                     Toast.makeText(requireContext(), "Playlist saved", Toast.LENGTH_SHORT).show();
                 }
                 updateSaveButtonIcon(btnSave, !currentlySaved);
@@ -1024,6 +1369,7 @@ public class HomeFragment extends Fragment {
                 a.setBottomNavInteractionEnabled(true);
             }
         } catch (Exception ignored) {}
+        cancelServingDeadline();
         if (weatherService != null) weatherService.shutdown();
         if (spotifyAPI != null) {
             spotifyAPI.shutdown();
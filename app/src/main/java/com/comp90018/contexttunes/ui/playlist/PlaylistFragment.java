@@ -14,9 +14,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
-import com.bumptech.glide.Glide;
 import com.comp90018.contexttunes.R;
 import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+import com.comp90018.contexttunes.utils.ArtworkLoader;
 import com.comp90018.contexttunes.utils.PlaylistOpener;
 import com.comp90018.contexttunes.utils.SavedPlaylistsManager;
 import com.google.android.material.button.MaterialButton;
@@ -96,9 +96,7 @@ public class PlaylistFragment extends Fragment {
 
             playlistName.setText(playlist.name);
             playlistMeta.setText(playlist.ownerName + " • " + playlist.totalTracks + " tracks");
-            if (playlist.imageUrl != null && !playlist.imageUrl.isEmpty()) {
-                Glide.with(requireContext()).load(playlist.imageUrl).into(img);
-            }
+            ArtworkLoader.load(img, playlist);
 
             // Play button functionality
             btnPlay.setOnClickListener(v -> PlaylistOpener.openPlaylist(requireContext(), playlist));
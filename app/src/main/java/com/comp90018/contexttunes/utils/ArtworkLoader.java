@@ -0,0 +1,51 @@
+package com.comp90018.contexttunes.utils;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.comp90018.contexttunes.R;
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+
+import java.util.List;
+
+/**
+ * Playlist cover loading for the result and saved-playlist cards.
+ * Picks the smallest Spotify image variant that covers the card (R.dimen.playlist_cover_size in
+ * pixels) and decodes it at that size. {@link #prefetch} uses the exact same request, so covers
+ * fetched right after a search are memory-cache hits when the cards bind.
+ */
+public final class ArtworkLoader {
+
+    private ArtworkLoader() {}
+
+    public static void load(@NonNull ImageView view, @NonNull SpotifyPlaylist playlist) {
+        int px = coverSizePx(view.getContext());
+        String url = playlist.imageUrlFor(px);
+        if (url == null || url.isEmpty()) return;
+        request(Glide.with(view), url, px).into(view);
+    }
+
+    /** Start downloading and decoding every cover now; Glide runs the loads in parallel. */
+    public static void prefetch(@NonNull Context context, @NonNull List<SpotifyPlaylist> playlists) {
+        int px = coverSizePx(context);
+        RequestManager glide = Glide.with(context.getApplicationContext());
+        for (SpotifyPlaylist p : playlists) {
+            String url = p.imageUrlFor(px);
+            if (url != null && !url.isEmpty()) request(glide, url, px).preload(px, px);
+        }
+    }
+
+    private static int coverSizePx(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.playlist_cover_size);
+    }
+
+    private static RequestBuilder<Drawable> request(RequestManager glide, String url, int px) {
+        return glide.load(url).override(px, px).centerCrop();
+    }
+}
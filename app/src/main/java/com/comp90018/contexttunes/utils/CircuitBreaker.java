@@ -0,0 +1,82 @@
+package com.comp90018.contexttunes.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Minimal circuit breaker for a flaky remote dependency.
+ * - CLOSED:    requests go through; consecutive failures are counted.
+ * - OPEN:      after {@code failureThreshold} consecutive failures, requests are refused
+ *              (callers go straight to their fallback) for {@code openDurationMs}.
+ * - HALF_OPEN: after the cool-down, exactly one probe request is let through;
+ *              success closes the breaker, failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt = 0L;
+    private boolean probeInFlight = false;
+
+    public CircuitBreaker(@NonNull String name, int failureThreshold, long openDurationMs) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /** Whether a request may be sent now. A true result in HALF_OPEN reserves the probe. */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (SystemClock.elapsedRealtime() - openedAt < openDurationMs) return false;
+                transition(State.HALF_OPEN);
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != State.CLOSED) transition(State.CLOSED);
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            openedAt = SystemClock.elapsedRealtime();
+            if (state != State.OPEN) transition(State.OPEN);
+        }
+    }
+
+    @NonNull
+    public synchronized State getState() {
+        // Report HALF_OPEN once the cool-down has passed, even before the next request arrives
+        if (state == State.OPEN && SystemClock.elapsedRealtime() - openedAt >= openDurationMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void transition(@NonNull State next) {
+        Log.i("CircuitBreaker", name + ": " + state + " → " + next
+                + " (consecutive failures=" + consecutiveFailures + ")");
+        state = next;
+    }
+}
@@ -0,0 +1,55 @@
+package com.comp90018.contexttunes.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size window of the most recent latency samples (ms) with percentile read-out.
+ * Writers never block: each record() claims a slot with one atomic increment and
+ * overwrites the oldest sample. Readers sort a snapshot, which is fine for the
+ * few hundred samples we keep.
+ */
+public final class LatencyHistogram {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong written = new AtomicLong();
+
+    public LatencyHistogram(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.samples = new AtomicLongArray(capacity);
+    }
+
+    public void record(long valueMs) {
+        long slot = written.getAndIncrement();
+        samples.set((int) (slot % samples.length()), valueMs);
+    }
+
+    /** Number of samples currently in the window. */
+    public int size() {
+        return (int) Math.min(written.get(), samples.length());
+    }
+
+    /** Total samples ever recorded. */
+    public long count() {
+        return written.get();
+    }
+
+    /**
+     * Value at the given percentile (0–100) over the current window, or -1 when empty.
+     */
+    public long percentile(double p) {
+        long[] snapshot = snapshot();
+        if (snapshot.length == 0) return -1;
+        Arrays.sort(snapshot);
+        int idx = (int) Math.ceil(p / 100.0 * snapshot.length) - 1;
+        return snapshot[Math.max(0, Math.min(snapshot.length - 1, idx))];
+    }
+
+    private long[] snapshot() {
+        int n = size();
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) out[i] = samples.get(i);
+        return out;
+    }
+}
@@ -0,0 +1,271 @@
+package com.comp90018.contexttunes.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Process-wide latency / payload telemetry for every external call.
+ * Per endpoint we keep lock-free rings of the most recent DNS, connect, TTFB and total times
+ * (see {@link LatencyHistogram}) plus counters for bytes, status classes and retries.
+ *
+ * Connection reuse (pooled vs new socket) and HTTP/2 use are counted for OkHttp calls.
+ *
+ * Recording:
+ *   - OkHttp clients: add {@link #eventListenerFactory()} and everything is measured automatically.
+ *   - Other clients (Places SDK, Rekognition): fill a {@link CallRecord} and
+ *     pass it to {@link #record(String, CallRecord)}; fields that can't be measured stay -1.
+ *
+ * Reading: {@link #dump()} returns a text summary; {@link #logSummary()} writes it to logcat.
+ */
+public final class NetworkTelemetry {
+
+    private static final String TAG = "NetworkTelemetry";
+    private static final int WINDOW = 200; // samples kept per metric per endpoint
+
+    // Endpoint names
+    public static final String OPENAI_CHAT = "openai.chat";
+    public static final String SPOTIFY_SEARCH = "spotify.search";
+    public static final String OPENWEATHER_CURRENT = "openweather.current";
+    public static final String OPENWEATHER_FORECAST = "openweather.forecast";
+    public static final String PLACES_NEARBY = "places.nearby";
+    public static final String REKOGNITION_LABELS = "rekognition.detectLabels";
+
+    private static final Map<String, EndpointStats> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private NetworkTelemetry() {}
+
+    /** One finished call. -1 means "not measured / not applicable". */
+    public static final class CallRecord {
+        public long dnsMs = -1;
+        public long connectMs = -1;    // TCP + TLS; -1 when a pooled connection was reused
+        public long ttfbMs = -1;       // request start → first response byte (headers)
+        public long totalMs = -1;
+        public long requestBytes = -1;
+        public long responseBytes = -1;
+        public int status = -1;        // HTTP status, or -1 for a transport failure
+        public int retries = 0;
+        public int connectionReused = -1; // 1 pooled connection reused, 0 new connection, -1 unknown
+        public boolean http2 = false;
+    }
+
+    /** Aggregates for one endpoint. All writes are lock-free. */
+    public static final class EndpointStats {
+        final String name;
+        final LatencyHistogram dns = new LatencyHistogram(WINDOW);
+        final LatencyHistogram connect = new LatencyHistogram(WINDOW);
+        final LatencyHistogram ttfb = new LatencyHistogram(WINDOW);
+        final LatencyHistogram total = new LatencyHistogram(WINDOW);
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong requestBytes = new AtomicLong();
+        final AtomicLong responseBytes = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong reusedConnections = new AtomicLong();
+        final AtomicLong newConnections = new AtomicLong();
+        final AtomicLong http2Calls = new AtomicLong();
+        // index 0 = transport failure, 1..5 = 1xx..5xx
+        final AtomicLongArray statusClasses = new AtomicLongArray(6);
+
+        EndpointStats(String name) { this.name = name; }
+
+        void add(@NonNull CallRecord r) {
+            calls.incrementAndGet();
+            if (r.dnsMs >= 0) dns.record(r.dnsMs);
+            if (r.connectMs >= 0) connect.record(r.connectMs);
+            if (r.ttfbMs >= 0) ttfb.record(r.ttfbMs);
+            if (r.totalMs >= 0) total.record(r.totalMs);
+            if (r.requestBytes > 0) requestBytes.addAndGet(r.requestBytes);
+            if (r.responseBytes > 0) responseBytes.addAndGet(r.responseBytes);
+            if (r.retries > 0) retries.addAndGet(r.retries);
+            if (r.connectionReused == 1) reusedConnections.incrementAndGet();
+            else if (r.connectionReused == 0) newConnections.incrementAndGet();
+            if (r.http2) http2Calls.incrementAndGet();
+            int cls = (r.status >= 100 && r.status < 600) ? r.status / 100 : 0;
+            statusClasses.incrementAndGet(cls);
+        }
+
+        public long getCallCount() { return calls.get(); }
+        public long totalPercentile(double p) { return total.percentile(p); }
+        public long ttfbPercentile(double p) { return ttfb.percentile(p); }
+        public long connectPercentile(double p) { return connect.percentile(p); }
+        public long dnsPercentile(double p) { return dns.percentile(p); }
+        public long getRequestBytes() { return requestBytes.get(); }
+        public long getResponseBytes() { return responseBytes.get(); }
+        public long getRetryCount() { return retries.get(); }
+        public long getFailureCount() { return statusClasses.get(0); }
+        public long getReusedConnectionCount() { return reusedConnections.get(); }
+        public long getNewConnectionCount() { return newConnections.get(); }
+        public long getHttp2CallCount() { return http2Calls.get(); }
+
+        @NonNull
+        String summary() {
+            long n = Math.max(1, calls.get());
+            return String.format(Locale.ROOT,
+                    "%-24s n=%d total p50/p95=%s/%s ttfb=%s/%s connect=%s/%s dns=%s/%s ms"
+                            + " req~%dB resp~%dB 2xx=%d 3xx=%d 4xx=%d 5xx=%d fail=%d retries=%d"
+                            + " conn reused/new=%d/%d h2=%d",
+                    name, calls.get(),
+                    ms(total.percentile(50)), ms(total.percentile(95)),
+                    ms(ttfb.percentile(50)), ms(ttfb.percentile(95)),
+                    ms(connect.percentile(50)), ms(connect.percentile(95)),
+                    ms(dns.percentile(50)), ms(dns.percentile(95)),
+                    requestBytes.get() / n, responseBytes.get() / n,
+                    statusClasses.get(2), statusClasses.get(3), statusClasses.get(4),
+                    statusClasses.get(5), statusClasses.get(0), retries.get(),
+                    reusedConnections.get(), newConnections.get(), http2Calls.get());
+        }
+
+        private static String ms(long v) { return v < 0 ? "-" : String.valueOf(v); }
+    }
+
+    // ---------------- Recording ----------------
+
+    @NonNull
+    public static EndpointStats endpoint(@NonNull String name) {
+        EndpointStats s = ENDPOINTS.get(name);
+        if (s != null) return s;
+        ENDPOINTS.putIfAbsent(name, new EndpointStats(name));
+        return ENDPOINTS.get(name);
+    }
+
+    public static void record(@NonNull String endpointName, @NonNull CallRecord record) {
+        endpoint(endpointName).add(record);
+    }
+
+    /** A request was re-sent (e.g. after a 429); counted against the endpoint's retries. */
+    public static void recordRetry(@NonNull String endpointName) {
+        endpoint(endpointName).retries.incrementAndGet();
+    }
+
+    /** Milliseconds elapsed since a {@link System#nanoTime()} timestamp. */
+    public static long sinceMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    // ---------------- Reading ----------------
+
+    @NonNull
+    public static String dump() {
+        List<String> names = new ArrayList<>(ENDPOINTS.keySet());
+        Collections.sort(names);
+        StringBuilder sb = new StringBuilder("Network telemetry:");
+        for (String n : names) sb.append('\n').append(ENDPOINTS.get(n).summary());
+        return sb.toString();
+    }
+
+    public static void logSummary() {
+        Log.d(TAG, dump());
+    }
+
+    // ---------------- OkHttp integration ----------------
+
+    /** Maps an OkHttp request URL to one of the endpoint names above. */
+    @NonNull
+    public static String endpointFor(@NonNull HttpUrl url) {
+        String host = url.host();
+        if (host.endsWith("openai.com")) return OPENAI_CHAT;
+        if (host.endsWith("api.spotify.com") && url.encodedPath().endsWith("/search")) return SPOTIFY_SEARCH;
+        if (host.endsWith("openweathermap.org")) {
+            return url.encodedPath().endsWith("/forecast") ? OPENWEATHER_FORECAST : OPENWEATHER_CURRENT;
+        }
+        return host + url.encodedPath();
+    }
+
+    @NonNull
+    public static EventListener.Factory eventListenerFactory() {
+        return call -> new CallTimingListener();
+    }
+
+    /** Per-call listener: turns OkHttp lifecycle events into a {@link CallRecord}. */
+    private static final class CallTimingListener extends EventListener {
+        private final CallRecord r = new CallRecord();
+        private long callStart, dnsStart, connectStart, requestStart;
+        @Nullable private String endpoint;
+
+        @Override public void callStart(@NonNull Call call) {
+            callStart = System.nanoTime();
+            endpoint = endpointFor(call.request().url());
+        }
+
+        @Override public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        @Override public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                                     @NonNull List<InetAddress> addresses) {
+            r.dnsMs = sinceMs(dnsStart);
+        }
+
+        @Override public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address,
+                                           @NonNull Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        @Override public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address,
+                                         @NonNull Proxy proxy, @Nullable Protocol protocol) {
+            r.connectMs = sinceMs(connectStart);
+        }
+
+        @Override public void connectionAcquired(@NonNull Call call, @NonNull Connection connection) {
+            // connectStart only fires for fresh sockets, so its absence means a pooled connection
+            if (r.connectionReused < 0) r.connectionReused = connectStart == 0 ? 1 : 0;
+            r.http2 = connection.protocol() == Protocol.HTTP_2;
+        }
+
+        @Override public void requestHeadersStart(@NonNull Call call) {
+            if (requestStart == 0) requestStart = System.nanoTime();
+        }
+
+        @Override public void requestBodyEnd(@NonNull Call call, long byteCount) {
+            r.requestBytes = byteCount;
+        }
+
+        @Override public void responseHeadersStart(@NonNull Call call) {
+            if (r.ttfbMs < 0) r.ttfbMs = sinceMs(requestStart != 0 ? requestStart : callStart);
+        }
+
+        @Override public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+            r.status = response.code();
+        }
+
+        @Override public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            r.responseBytes = byteCount;
+        }
+
+        @Override public void callEnd(@NonNull Call call) {
+            finish();
+        }
+
+        @Override public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            r.status = -1;
+            finish();
+        }
+
+        private void finish() {
+            r.totalMs = sinceMs(callStart);
+            record(endpoint != null ? endpoint : "unknown", r);
+        }
+    }
+}
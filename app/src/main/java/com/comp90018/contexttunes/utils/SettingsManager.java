@@ -34,6 +34,12 @@ public class SettingsManager {
     private static final String KEY_CONTEXT_CHANGES = "context_changes";
 
     private static final String KEY_AI_MODE = "ai_mode";
+    private static final String KEY_AI_STREAMING = "ai_streaming";
+    private static final String KEY_AI_SPECULATIVE = "ai_speculative";
+    private static final String KEY_AI_TIERED = "ai_tiered";
+    private static final String KEY_AI_LATENCY_BUDGET_MS = "ai_latency_budget_ms";
+
+    public static final int DEFAULT_AI_LATENCY_BUDGET_MS = 800;
 
     private final SharedPreferences prefs;
 
@@ -195,4 +201,37 @@ public class SettingsManager {
     public boolean isAIMode() {
         return prefs.getBoolean(KEY_AI_MODE, true); // Default: AI enabled
     }
+
+    public void setAIStreamingEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_AI_STREAMING, enabled).apply();
+    }
+
+    public boolean isAIStreamingEnabled() {
+        return prefs.getBoolean(KEY_AI_STREAMING, true); // Default: stream, start Spotify on search_query
+    }
+
+    public void setSpeculativeAIEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_AI_SPECULATIVE, enabled).apply();
+    }
+
+    public boolean isSpeculativeAIEnabled() {
+        return prefs.getBoolean(KEY_AI_SPECULATIVE, true); // Default: ask the AI while the window runs
+    }
+
+    public void setTieredServingEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_AI_TIERED, enabled).apply();
+    }
+
+    public boolean isTieredServingEnabled() {
+        return prefs.getBoolean(KEY_AI_TIERED, true); // Default: show offline results if the AI is slow
+    }
+
+    /** How long to wait for the AI before rendering offline results first. */
+    public void setAILatencyBudgetMs(int budgetMs) {
+        prefs.edit().putInt(KEY_AI_LATENCY_BUDGET_MS, Math.max(0, budgetMs)).apply();
+    }
+
+    public int getAILatencyBudgetMs() {
+        return prefs.getInt(KEY_AI_LATENCY_BUDGET_MS, DEFAULT_AI_LATENCY_BUDGET_MS);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.comp90018.contexttunes.data.api;
+
+import com.comp90018.contexttunes.domain.SpotifyPlaylist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FuseRankingsTest {
+
+    private static SpotifyPlaylist album(String id) {
+        return new SpotifyPlaylist(id, "Album " + id, "album", "", "Artist", 10, "https://open.spotify.com/album/" + id);
+    }
+
+    private static List<SpotifyPlaylist> ranking(String... ids) {
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        for (String id : ids) out.add(album(id));
+        return out;
+    }
+
+    private static List<String> ids(List<SpotifyPlaylist> albums) {
+        List<String> out = new ArrayList<>();
+        for (SpotifyPlaylist p : albums) out.add(p.id);
+        return out;
+    }
+
+    @Test
+    public void fuse_singleRankingKeepsOrder() {
+        List<SpotifyPlaylist> fused = SpotifyAPI.fuseRankings(
+                Collections.singletonList(ranking("a", "b", "c")), 10);
+        assertEquals(Arrays.asList("a", "b", "c"), ids(fused));
+    }
+
+    @Test
+    public void fuse_deduplicatesById() {
+        List<SpotifyPlaylist> fused = SpotifyAPI.fuseRankings(
+                Arrays.asList(ranking("a", "b"), ranking("b", "a")), 10);
+        assertEquals(2, fused.size());
+    }
+
+    @Test
+    public void fuse_albumInSeveralListsRanksFirst() {
+        // "c" is third and second, beating "a" and "x" that are first in only one list each
+        List<SpotifyPlaylist> fused = SpotifyAPI.fuseRankings(
+                Arrays.asList(ranking("a", "b", "c"), ranking("x", "c", "y")), 10);
+        assertEquals("c", fused.get(0).id);
+        // Equal scores keep the order of the first list
+        assertEquals(Arrays.asList("c", "a", "x", "b", "y"), ids(fused));
+    }
+
+    @Test
+    public void fuse_truncatesToLimitAndSkipsNulls() {
+        List<SpotifyPlaylist> withNulls = new ArrayList<>(ranking("a", "b"));
+        withNulls.add(1, null);
+        withNulls.add(album(null));
+        List<SpotifyPlaylist> fused = SpotifyAPI.fuseRankings(
+                Arrays.asList(withNulls, ranking("c", "d", "e")), 3);
+        assertEquals(3, fused.size());
+        for (SpotifyPlaylist p : fused) assertNotNull(p.id);
+    }
+}
@@ -0,0 +1,31 @@
+package com.comp90018.contexttunes.data.weather;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeohashTest {
+
+    @Test
+    public void encode_matchesReferenceHash() {
+        // Reference point from the geohash spec (Jutland, Denmark)
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("u4pru", Geohash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    public void encode_shorterPrecisionIsPrefix() {
+        String full = Geohash.encode(-37.7963, 144.9614, 9);
+        for (int p = 1; p < 9; p++) {
+            assertEquals(full.substring(0, p), Geohash.encode(-37.7963, 144.9614, p));
+        }
+    }
+
+    @Test
+    public void encode_nearbyPointsShareCell() {
+        // ~100 m apart in Melbourne → same 5-character cell
+        assertEquals(Geohash.encode(-37.7963, 144.9614, 5), Geohash.encode(-37.7970, 144.9625, 5));
+        // Other side of the world → different cell
+        assertNotEquals(Geohash.encode(-37.7963, 144.9614, 5), Geohash.encode(51.5074, -0.1278, 5));
+    }
+}
@@ -0,0 +1,62 @@
+package com.comp90018.contexttunes.domain;
+
+import com.comp90018.contexttunes.data.sensors.LightSensor.LightBucket;
+import com.comp90018.contexttunes.data.weather.WeatherService.WeatherState;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ContextTest {
+
+    private static Context near(List<String> nearby, List<String> labels) {
+        return new Context(LightBucket.BRIGHT, "morning", "walking", WeatherState.SUNNY, null, nearby, labels);
+    }
+
+    @Test
+    public void normalizedKey_ignoresCaseWhitespaceAndOrder() {
+        Context a = new Context(LightBucket.DIM, "Evening", " Still ", WeatherState.RAINY, null,
+                Arrays.asList("cafe", "park"), Arrays.asList("Coffee", "Book"));
+        Context b = new Context(LightBucket.DIM, "evening", "still", WeatherState.RAINY, null,
+                Arrays.asList("park", "CAFE"), Arrays.asList("book", "coffee"));
+        assertEquals(a.normalizedKey(), b.normalizedKey());
+    }
+
+    @Test
+    public void normalizedKey_usesEveryNearbyType() {
+        // The prompt sends all nearby types, so a difference in the fourth one is a different key
+        Context a = near(Arrays.asList("cafe", "park", "library", "gym"), Collections.emptyList());
+        Context b = near(Arrays.asList("cafe", "park", "library", "bar"), Collections.emptyList());
+        assertNotEquals(a.normalizedKey(), b.normalizedKey());
+    }
+
+    @Test
+    public void normalizedKey_distinguishesSensorValues() {
+        Context base = near(Collections.singletonList("park"), Collections.emptyList());
+        Context otherWeather = new Context(LightBucket.BRIGHT, "morning", "walking", WeatherState.CLOUDY, null,
+                Collections.singletonList("park"), Collections.emptyList());
+        Context withLabel = near(Collections.singletonList("park"), Collections.singletonList("dog"));
+        assertNotEquals(base.normalizedKey(), otherWeather.normalizedKey());
+        assertNotEquals(base.normalizedKey(), withLabel.normalizedKey());
+    }
+
+    @Test
+    public void normalizedKey_placeTagReplacesNearbyTypes() {
+        Context tagged1 = new Context(LightBucket.NORMAL, "night", "still", WeatherState.UNKNOWN, "Home",
+                Arrays.asList("cafe", "park"), Collections.emptyList());
+        Context tagged2 = new Context(LightBucket.NORMAL, "night", "still", WeatherState.UNKNOWN, "home",
+                Collections.singletonList("gym"), Collections.emptyList());
+        assertEquals(tagged1.normalizedKey(), tagged2.normalizedKey());
+    }
+
+    @Test
+    public void normalizedKey_handlesMissingValues() {
+        Context empty = new Context(null, null, null, null);
+        assertNotNull(empty.normalizedKey());
+        assertEquals(empty.normalizedKey(), new Context(null, null, null, null).normalizedKey());
+    }
+}
@@ -0,0 +1,87 @@
+package com.comp90018.contexttunes.domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SeenAlbumsFilterTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private SeenAlbumsFilter newFilter() {
+        return new SeenAlbumsFilter(new File(tmp.getRoot(), "seen.bloom"), now::get);
+    }
+
+    private static List<SpotifyPlaylist> albums(String... ids) {
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        for (String id : ids) out.add(new SpotifyPlaylist(id, id, "album", "", "Artist", 10, "url"));
+        return out;
+    }
+
+    @Test
+    public void markSeen_thenMightContain() {
+        SeenAlbumsFilter filter = newFilter();
+        filter.markSeen(albums("a1", "a2"));
+        assertTrue(filter.mightContain("a1"));
+        assertTrue(filter.mightContain("a2"));
+        assertFalse(filter.mightContain("never-shown"));
+    }
+
+    @Test
+    public void rotation_forgetsAfterAllSegmentsTurnOver() {
+        SeenAlbumsFilter filter = newFilter();
+        filter.markSeen(albums("old"));
+
+        now.addAndGet(3 * DAY_MS);
+        filter.markSeen(albums("recent"));
+        assertTrue(filter.mightContain("old"));    // its segment is still live
+
+        now.addAndGet(DAY_MS);                      // the oldest segment is reused and cleared
+        assertFalse(filter.mightContain("old"));
+        assertTrue(filter.mightContain("recent"));
+    }
+
+    @Test
+    public void rotation_longIdleForgetsEverything() {
+        SeenAlbumsFilter filter = newFilter();
+        filter.markSeen(albums("a1"));
+        now.addAndGet(30 * DAY_MS);
+        assertFalse(filter.mightContain("a1"));
+    }
+
+    @Test
+    public void falsePositiveRate_staysLowAtCapacity() {
+        SeenAlbumsFilter filter = newFilter();
+        List<SpotifyPlaylist> shown = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) shown.add(albums("shown-" + i).get(0));
+        filter.markSeen(shown);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other-" + i)) falsePositives++;
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 500); // ~2% expected, allow 5%
+    }
+
+    @Test
+    public void clear_forgetsEverything() {
+        SeenAlbumsFilter filter = newFilter();
+        filter.markSeen(albums("a1"));
+        filter.clear();
+        assertFalse(filter.mightContain("a1"));
+        filter.markSeen(Collections.emptyList()); // no-op
+        assertFalse(filter.mightContain("a1"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.comp90018.contexttunes.domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TempoIndexTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File file() {
+        return new File(tmp.getRoot(), "tempo.bin");
+    }
+
+    private static Map<String, Float> tempos(Object... idThenBpm) {
+        Map<String, Float> out = new LinkedHashMap<>();
+        for (int i = 0; i < idThenBpm.length; i += 2) out.put((String) idThenBpm[i], (Float) idThenBpm[i + 1]);
+        return out;
+    }
+
+    private static List<SpotifyPlaylist> albums(String... ids) {
+        List<SpotifyPlaylist> out = new ArrayList<>();
+        for (String id : ids) out.add(new SpotifyPlaylist(id, id, "album", "", "Artist", 10, "url"));
+        return out;
+    }
+
+    private static List<String> ids(List<SpotifyPlaylist> albums) {
+        List<String> out = new ArrayList<>();
+        for (SpotifyPlaylist p : albums) out.add(p.id);
+        return out;
+    }
+
+    @Test
+    public void lookups() {
+        TempoIndex index = new TempoIndex(file());
+        index.putAll(tempos("slow", 70f, "mid", 120f, "fast", 170f, "none", TempoIndex.UNKNOWN));
+
+        assertEquals(120f, index.tempoOf("mid"), 0f);
+        assertEquals(TempoIndex.UNKNOWN, index.tempoOf("none"), 0f);
+        assertTrue(Float.isNaN(index.tempoOf("missing")));
+
+        assertEquals(Arrays.asList("mid", "fast"), index.idsInRange(100f, 170f));
+        assertEquals(Arrays.asList("slow", "mid", "fast"), index.idsInRange(0f, 1000f)); // UNKNOWN left out
+        assertTrue(index.idsInRange(130f, 160f).isEmpty());
+
+        assertEquals(Arrays.asList("new"), index.missing(Arrays.asList("mid", "new", "none", "new")));
+    }
+
+    @Test
+    public void persistsAcrossInstances() {
+        new TempoIndex(file()).putAll(tempos("a", 95f, "b", 128f));
+        TempoIndex reloaded = new TempoIndex(file());
+        assertEquals(2, reloaded.size());
+        assertEquals(128f, reloaded.tempoOf("b"), 0f);
+    }
+
+    @Test
+    public void rerankByCadence_matchesFirstClosestFirst() {
+        TempoIndex index = new TempoIndex(file());
+        index.putAll(tempos("off", 100f, "near", 165f, "exact", 160f, "half", 81f));
+        List<SpotifyPlaylist> ranked = index.rerankByCadence(albums("off", "unknown", "near", "half", "exact"), 160f);
+        assertEquals(Arrays.asList("exact", "half", "near", "off", "unknown"), ids(ranked));
+    }
+
+    @Test
+    public void rerankByCadence_noOpWhenNotMoving() {
+        TempoIndex index = new TempoIndex(file());
+        index.putAll(tempos("a", 60f, "b", 50f));
+        List<SpotifyPlaylist> input = albums("a", "b");
+        assertSame(input, index.rerankByCadence(input, 30f));
+        assertSame(input, index.rerankByCadence(input, Float.NaN));
+    }
+
+    @Test
+    public void evictsOldestEntriesFirst() {
+        TempoIndex index = new TempoIndex(file());
+        index.putAll(tempos("zzz-oldest", 120f));
+        Map<String, Float> bulk = new HashMap<>();
+        for (int i = 0; i < 5000; i++) bulk.put("aaa-" + i, 100f);
+        index.putAll(bulk);
+
+        assertEquals(5000, index.size());
+        assertTrue(Float.isNaN(index.tempoOf("zzz-oldest"))); // largest id, but the oldest entry
+        assertEquals(100f, index.tempoOf("aaa-0"), 0f);
+    }
+}
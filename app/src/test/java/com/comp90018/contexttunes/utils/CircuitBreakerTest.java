@@ -0,0 +1,57 @@
+package com.comp90018.contexttunes.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * SystemClock.elapsedRealtime() is 0 in local tests, so a breaker with a long cool-down stays
+ * OPEN and one with no cool-down is immediately ready for its probe.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, 60_000);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 60_000);
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenLetsOneProbeThrough() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());  // the probe
+        assertFalse(breaker.allowRequest()); // everyone else waits for it
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbeReopens() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, 0);
+        for (int i = 0; i < 5; i++) breaker.onFailure();
+        assertTrue(breaker.allowRequest()); // probe
+        breaker.onFailure();                 // one failure is enough in HALF_OPEN
+        assertTrue(breaker.allowRequest());  // no cool-down → next probe
+        assertFalse(breaker.allowRequest());
+    }
+}
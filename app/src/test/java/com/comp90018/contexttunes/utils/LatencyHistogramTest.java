@@ -0,0 +1,37 @@
+package com.comp90018.contexttunes.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentile_emptyIsMinusOne() {
+        assertEquals(-1, new LatencyHistogram(10).percentile(50));
+    }
+
+    @Test
+    public void percentile_nearestRank() {
+        LatencyHistogram h = new LatencyHistogram(100);
+        for (int v = 100; v >= 1; v--) h.record(v); // insertion order must not matter
+        assertEquals(50, h.percentile(50));
+        assertEquals(95, h.percentile(95));
+        assertEquals(100, h.percentile(100));
+        assertEquals(1, h.percentile(0));
+    }
+
+    @Test
+    public void record_overwritesOldestWhenFull() {
+        LatencyHistogram h = new LatencyHistogram(4);
+        for (long v : new long[]{1000, 1000, 1, 2, 3, 4}) h.record(v);
+        assertEquals(4, h.size());
+        assertEquals(6, h.count());
+        assertEquals(4, h.percentile(100)); // both 1000 ms samples have left the window
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroCapacity() {
+        new LatencyHistogram(0);
+    }
+}